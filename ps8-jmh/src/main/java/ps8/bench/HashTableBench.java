@@ -0,0 +1,255 @@
+/*
+ * HashTableBench.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+package ps8.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * JMH benchmarks for the ps8 hash tables: searches that hit and miss,
+ * removes that hit and miss, inserting and then removing a new key,
+ * and filling an empty table, for each table type, load factor, and
+ * type of key.
+ *
+ * JMH can't benchmark classes in the default package (its generated
+ * code has to import them), so this class is in a package and reaches
+ * the ps8 classes by reflection. The HashTable methods are called
+ * through static final method handles, which the JIT compiles into
+ * ordinary interface calls, so every table pays the same small cost.
+ *
+ * The keys are shuffled with a fixed seed and the JVM options are
+ * fixed, so that results from different versions of the tables can
+ * be compared. For example:
+ *
+ *   java -jar target/benchmarks.jar -rf json -rff before.json
+ *   java -jar target/benchmarks.jar -p impl=CHAINED -p keyType=LONG_STRING
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms4g", "-Xmx4g", "-XX:+UseParallelGC" })
+public class HashTableBench {
+    private static final Class<?> HASH_TABLE = ps8Class("HashTable");
+    private static final Class<?> QUEUE = ps8Class("Queue");
+
+    // HashTable.insert, search, and remove, with their argument and
+    // return types widened so that they can be invoked exactly
+    private static final MethodHandle INSERT = handle("insert",
+        MethodType.methodType(boolean.class, Object.class, Object.class),
+        MethodType.methodType(boolean.class, Object.class, Object.class, Object.class));
+    private static final MethodHandle SEARCH = handle("search",
+        MethodType.methodType(QUEUE, Object.class),
+        MethodType.methodType(Object.class, Object.class, Object.class));
+    private static final MethodHandle REMOVE = handle("remove",
+        MethodType.methodType(QUEUE, Object.class),
+        MethodType.methodType(Object.class, Object.class, Object.class));
+
+    // the number of slots (or buckets) in each table
+    private static final int CAPACITY = 1 << 20;
+
+    // the number of keys that one invocation of removeHit removes; no
+    // more than the number of keys at the lowest load
+    private static final int REMOVES = CAPACITY / 8;
+
+    @Param({ "OPEN_LINEAR", "OPEN_QUADRATIC", "OPEN_DOUBLE_HASHING",
+             "OPEN_ROBIN_HOOD", "CHAINED", "SWISS", "CUCKOO" })
+    public String impl;
+
+    @Param({ "0.25", "0.5", "0.75" })
+    public double load;
+
+    @Param({ "INTEGER", "SHORT_STRING", "LONG_STRING" })
+    public String keyType;
+
+    private Object table;
+    private Object[] keys;          // the keys in the table, shuffled
+    private Object[] missing;       // keys that are never in the table
+    private int next;               // index of the next key to use
+
+    private static Class<?> ps8Class(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("ps8 classes not on the classpath", e);
+        }
+    }
+
+    private static MethodHandle handle(String name, MethodType type, MethodType exact) {
+        try {
+            return MethodHandles.publicLookup()
+                .findVirtual(HASH_TABLE, name, type).asType(exact);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("HashTable." + name + " not found", e);
+        }
+    }
+
+    /* makeKey - the i-th key of the current key type */
+    private Object makeKey(int i) {
+        if (keyType.equals("INTEGER")) {
+            return i;
+        } else if (keyType.equals("SHORT_STRING")) {
+            return "k" + i;
+        } else if (keyType.equals("LONG_STRING")) {
+            return "https://www.example.com/catalog/products/item?id=" + i;
+        }
+        throw new IllegalArgumentException("invalid keyType: " + keyType);
+    }
+
+    /* newTable - creates an empty table of the current type with CAPACITY slots */
+    private Object newTable() throws ReflectiveOperationException {
+        Class<?> hf = ps8Class("HashFunction");
+        Object mixing = hf.getField("MIXING").get(null);
+        if (impl.startsWith("OPEN_")) {
+            String probeName = impl.substring("OPEN_".length());
+            int probeType = ps8Class("OpenHashTable").getField(probeName).getInt(null);
+            return ps8Class("OpenHashTable")
+                .getConstructor(int.class, int.class, hf)
+                .newInstance(CAPACITY, probeType, mixing);
+        } else if (impl.equals("CHAINED")) {
+            return ps8Class("ChainedHashTable")
+                .getConstructor(int.class, hf)
+                .newInstance(CAPACITY, mixing);
+        } else if (impl.equals("SWISS")) {
+            // SwissHashTable allows up to 7/8 of its slots to be used
+            return ps8Class("SwissHashTable")
+                .getConstructor(int.class)
+                .newInstance(CAPACITY / 8 * 7);
+        } else if (impl.equals("CUCKOO")) {
+            return ps8Class("CuckooHashTable")
+                .getConstructor(int.class)
+                .newInstance(CAPACITY);
+        }
+        throw new IllegalArgumentException("invalid impl: " + impl);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        int n = (int)(load * CAPACITY);
+        keys = new Object[n];
+        missing = new Object[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = makeKey(2 * i);
+            missing[i] = makeKey(2 * i + 1);
+        }
+        shuffle(keys, new Random(112));
+        shuffle(missing, new Random(113));
+
+        table = filledTable();
+    }
+
+    /* filledTable - creates a new table that holds all of the keys */
+    private Object filledTable() throws Throwable {
+        Object t = newTable();
+        for (int i = 0; i < keys.length; i++) {
+            if (!(boolean)INSERT.invokeExact(t, keys[i], (Object)i)) {
+                throw new IllegalStateException(impl + " overflowed at load " + load);
+            }
+        }
+        return t;
+    }
+
+    /*
+     * A full table for removeHit, which empties part of it. It is
+     * refilled before each invocation, outside of the timing.
+     */
+    @State(Scope.Thread)
+    public static class Removal {
+        private Object table;
+
+        @Setup(Level.Invocation)
+        public void refill(HashTableBench bench) throws Throwable {
+            table = bench.filledTable();
+        }
+    }
+
+    private static void shuffle(Object[] arr, Random rand) {
+        for (int i = arr.length - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            Object temp = arr[i];
+            arr[i] = arr[j];
+            arr[j] = temp;
+        }
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (i + 1 == keys.length) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public Object searchHit() throws Throwable {
+        return (Object)SEARCH.invokeExact(table, keys[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object searchMiss() throws Throwable {
+        return (Object)SEARCH.invokeExact(table, missing[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object removeMiss() throws Throwable {
+        return (Object)REMOVE.invokeExact(table, missing[nextIndex()]);
+    }
+
+    /*
+     * removeHit - removes REMOVES of the keys from a full table, in
+     * shuffled order; the score is the time per remove
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OperationsPerInvocation(REMOVES)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    public void removeHit(Removal r, Blackhole bh) throws Throwable {
+        for (int i = 0; i < REMOVES; i++) {
+            bh.consume((Object)REMOVE.invokeExact(r.table, keys[i]));
+        }
+    }
+
+    /*
+     * insertRemove - inserts a key that isn't in the table and then
+     * removes it. The keys in the table stay the same, but the
+     * OPEN_* tables leave a removed marker in the slot each time, so
+     * their score includes the rehashes that clear those markers out
+     * from time to time (at 1M slots, a few hundred ns per operation).
+     * At load 0.75, the first of those rehashes doubles the table
+     * instead, which happens during warm-up; after that, the OPEN_*
+     * tables are measured at about half of the nominal load.
+     */
+    @Benchmark
+    public void insertRemove(Blackhole bh) throws Throwable {
+        Object key = missing[nextIndex()];
+        bh.consume((boolean)INSERT.invokeExact(table, key, key));
+        bh.consume((Object)REMOVE.invokeExact(table, key));
+    }
+
+    /*
+     * fill - inserts all of the keys into an empty table; the score is
+     * the time per table, not per key
+     */
+    @Benchmark
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public Object fill() throws Throwable {
+        Object fresh = newTable();
+        for (int i = 0; i < keys.length; i++) {
+            if (!(boolean)INSERT.invokeExact(fresh, keys[i], keys[i])) {
+                throw new IllegalStateException(impl + " overflowed at load " + load);
+            }
+        }
+        return fresh;
+    }
+}
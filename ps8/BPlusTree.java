@@ -0,0 +1,493 @@
+/*
+ * BPlusTree.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+import java.util.*;
+
+/*
+ * BPlusTree - a class that represents a B+ tree containing data items
+ * with integer keys. It offers the same search/insert/delete operations
+ * as LinkedTree, but it stores many keys per node in sorted int arrays,
+ * so a search touches only a few nodes (instead of one node per level
+ * of a binary tree) and scans the keys within a node using consecutive
+ * memory.
+ *
+ * All of the keys (and their lists of data items) are in the leaves,
+ * which are all at the same depth and are linked to their neighbors.
+ * The internal nodes hold only separator keys: the subtree of
+ * children[i] holds the keys k with keys[i-1] <= k < keys[i]. Because
+ * of the links between the leaves, an in-order scan of a range of keys
+ * finds the first key and then just moves along the leaves.
+ *
+ * Every node except the root holds between CAPACITY / 2 and CAPACITY
+ * keys. A node that becomes too full is split in two, and a node that
+ * becomes too empty borrows a key from a sibling or is merged with it.
+ */
+public class BPlusTree {
+    // the most keys that a node can hold
+    public static final int CAPACITY = 64;
+    private static final int MIN_KEYS = CAPACITY / 2;
+
+    // An inner class for the nodes in the tree. The arrays have room
+    // for one extra key, so that a node can overflow before it is split.
+    private static class Node {
+        int[] keys = new int[CAPACITY + 1];
+        int numKeys;
+    }
+
+    private static class Leaf extends Node {
+        private LLList[] data = new LLList[CAPACITY + 1];
+        private Leaf next;      // the leaf with the next larger keys
+        private Leaf prev;      // the leaf with the next smaller keys
+    }
+
+    private static class Internal extends Node {
+        private Node[] children = new Node[CAPACITY + 2];
+    }
+
+    private Node root;
+    private int height;         // the number of levels of internal nodes
+    private int numKeys;
+
+    // the internal nodes on the path to the most recently found leaf,
+    // and the index of the child that the path took at each of them
+    private Internal[] path = new Internal[8];
+    private int[] pathIndex = new int[8];
+
+    public BPlusTree() {
+        root = new Leaf();
+    }
+
+    /*
+     * Returns the index of the child of the specified internal node
+     * whose subtree could contain the specified key: the number of
+     * separators that are <= key.
+     */
+    private static int childIndex(Internal n, int key) {
+        int lo = 0;
+        int hi = n.numKeys;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (n.keys[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /*
+     * Returns the position of the first key in the specified node
+     * that is >= key (numKeys if there is none).
+     */
+    private static int lowerBound(Node n, int key) {
+        int lo = 0;
+        int hi = n.numKeys;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (n.keys[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /*
+     * Returns the leaf that could contain the specified key, recording
+     * the path to it in path and pathIndex.
+     */
+    private Leaf findLeaf(int key) {
+        Node trav = root;
+        for (int level = 0; level < height; level++) {
+            Internal in = (Internal)trav;
+            int i = childIndex(in, key);
+            path[level] = in;
+            pathIndex[level] = i;
+            trav = in.children[i];
+        }
+        return (Leaf)trav;
+    }
+
+    /*
+     * Searches for the specified key in the tree.
+     * If it finds it, it returns the list of data items associated with the key.
+     */
+    public LLList search(int key) {
+        Leaf leaf = findLeaf(key);
+        int i = lowerBound(leaf, key);
+        if (i < leaf.numKeys && leaf.keys[i] == key) {
+            return leaf.data[i];
+        } else {
+            return null;
+        }
+    }
+
+    /*
+     * Inserts the specified (key, data) pair in the tree. If the key is
+     * already in the tree, data is added to the front of its list.
+     */
+    public void insert(int key, Object data) {
+        Leaf leaf = findLeaf(key);
+        int i = lowerBound(leaf, key);
+        if (i < leaf.numKeys && leaf.keys[i] == key) {
+            leaf.data[i].addItem(data, 0);
+            return;
+        }
+
+        System.arraycopy(leaf.keys, i, leaf.keys, i + 1, leaf.numKeys - i);
+        System.arraycopy(leaf.data, i, leaf.data, i + 1, leaf.numKeys - i);
+        leaf.keys[i] = key;
+        leaf.data[i] = new LLList();
+        leaf.data[i].addItem(data, 0);
+        leaf.numKeys++;
+        numKeys++;
+
+        if (leaf.numKeys > CAPACITY) {
+            splitLeaf(leaf);
+        }
+    }
+
+    /*
+     * Splits the specified (overfull) leaf in two, and adds the first
+     * key of the new right-hand leaf to the parent as a separator.
+     */
+    private void splitLeaf(Leaf leaf) {
+        Leaf right = new Leaf();
+        int mid = leaf.numKeys / 2;
+        right.numKeys = leaf.numKeys - mid;
+        System.arraycopy(leaf.keys, mid, right.keys, 0, right.numKeys);
+        System.arraycopy(leaf.data, mid, right.data, 0, right.numKeys);
+        Arrays.fill(leaf.data, mid, leaf.numKeys, null);
+        leaf.numKeys = mid;
+
+        right.next = leaf.next;
+        if (right.next != null) {
+            right.next.prev = right;
+        }
+        right.prev = leaf;
+        leaf.next = right;
+
+        addToParent(height, leaf, right.keys[0], right);
+    }
+
+    /*
+     * Adds the separator sep and the new node right (which goes just after
+     * left) to the parent of left, which is at the specified level of the
+     * path (or, if left is the root, to a new root). Splits the parent if
+     * it overflows, and so on up the tree.
+     */
+    private void addToParent(int level, Node left, int sep, Node right) {
+        while (true) {
+            if (level == 0) {
+                Internal newRoot = new Internal();
+                newRoot.keys[0] = sep;
+                newRoot.children[0] = left;
+                newRoot.children[1] = right;
+                newRoot.numKeys = 1;
+                root = newRoot;
+                height++;
+                if (height == path.length) {
+                    path = Arrays.copyOf(path, 2 * height);
+                    pathIndex = Arrays.copyOf(pathIndex, 2 * height);
+                }
+                return;
+            }
+
+            Internal parent = path[level - 1];
+            int i = pathIndex[level - 1];    // left is parent.children[i]
+            System.arraycopy(parent.keys, i, parent.keys, i + 1, parent.numKeys - i);
+            System.arraycopy(parent.children, i + 1, parent.children, i + 2,
+                             parent.numKeys - i);
+            parent.keys[i] = sep;
+            parent.children[i + 1] = right;
+            parent.numKeys++;
+            if (parent.numKeys <= CAPACITY) {
+                return;
+            }
+
+            // Split the parent. Its middle key moves up rather than
+            // staying in either half.
+            Internal newRight = new Internal();
+            int mid = parent.numKeys / 2;
+            sep = parent.keys[mid];
+            newRight.numKeys = parent.numKeys - mid - 1;
+            System.arraycopy(parent.keys, mid + 1, newRight.keys, 0, newRight.numKeys);
+            System.arraycopy(parent.children, mid + 1, newRight.children, 0,
+                             newRight.numKeys + 1);
+            Arrays.fill(parent.children, mid + 1, parent.numKeys + 1, null);
+            parent.numKeys = mid;
+
+            left = parent;
+            right = newRight;
+            level--;
+        }
+    }
+
+    /*
+     * Deletes the specified key (if any) from the tree and returns its
+     * list of data items, or null if the key is not in the tree.
+     */
+    public LLList delete(int key) {
+        Leaf leaf = findLeaf(key);
+        int i = lowerBound(leaf, key);
+        if (i == leaf.numKeys || leaf.keys[i] != key) {
+            return null;
+        }
+
+        LLList removed = leaf.data[i];
+        System.arraycopy(leaf.keys, i + 1, leaf.keys, i, leaf.numKeys - i - 1);
+        System.arraycopy(leaf.data, i + 1, leaf.data, i, leaf.numKeys - i - 1);
+        leaf.numKeys--;
+        leaf.data[leaf.numKeys] = null;
+        numKeys--;
+
+        fixUnderflow(leaf, height);
+        return removed;
+    }
+
+    /*
+     * Restores the minimum number of keys in node n, which is at the
+     * specified level of the path, by borrowing a key from a sibling
+     * or merging with a sibling, and so on up the tree.
+     *
+     * Separators in the internal nodes are not changed when a key is
+     * simply deleted from a leaf: a separator only has to divide the
+     * keys of its two subtrees, not be one of them.
+     */
+    private void fixUnderflow(Node n, int level) {
+        while (level > 0 && n.numKeys < MIN_KEYS) {
+            Internal parent = path[level - 1];
+            int i = pathIndex[level - 1];    // n is parent.children[i]
+            Node left = (i > 0) ? parent.children[i - 1] : null;
+            Node right = (i < parent.numKeys) ? parent.children[i + 1] : null;
+
+            if (left != null && left.numKeys > MIN_KEYS) {
+                borrowFromLeft(parent, i, left, n);
+                return;
+            } else if (right != null && right.numKeys > MIN_KEYS) {
+                borrowFromRight(parent, i, n, right);
+                return;
+            } else if (left != null) {
+                merge(parent, i - 1, left, n);
+            } else {
+                merge(parent, i, n, right);
+            }
+
+            n = parent;
+            level--;
+        }
+
+        // an internal root with just one child is replaced by the child
+        if (height > 0 && root.numKeys == 0) {
+            root = ((Internal)root).children[0];
+            height--;
+        }
+    }
+
+    /*
+     * Moves the last key of left (the sibling just before n) into n, and
+     * updates the separator between them (parent.keys[i - 1]).
+     */
+    private static void borrowFromLeft(Internal parent, int i, Node left, Node n) {
+        System.arraycopy(n.keys, 0, n.keys, 1, n.numKeys);
+        if (n instanceof Leaf) {
+            Leaf ln = (Leaf)n;
+            Leaf ll = (Leaf)left;
+            System.arraycopy(ln.data, 0, ln.data, 1, ln.numKeys);
+            ln.keys[0] = ll.keys[ll.numKeys - 1];
+            ln.data[0] = ll.data[ll.numKeys - 1];
+            ll.data[ll.numKeys - 1] = null;
+            parent.keys[i - 1] = ln.keys[0];
+        } else {
+            Internal in = (Internal)n;
+            Internal il = (Internal)left;
+            System.arraycopy(in.children, 0, in.children, 1, in.numKeys + 1);
+            in.keys[0] = parent.keys[i - 1];
+            in.children[0] = il.children[il.numKeys];
+            il.children[il.numKeys] = null;
+            parent.keys[i - 1] = il.keys[il.numKeys - 1];
+        }
+        n.numKeys++;
+        left.numKeys--;
+    }
+
+    /*
+     * Moves the first key of right (the sibling just after n) into n, and
+     * updates the separator between them (parent.keys[i]).
+     */
+    private static void borrowFromRight(Internal parent, int i, Node n, Node right) {
+        if (n instanceof Leaf) {
+            Leaf ln = (Leaf)n;
+            Leaf lr = (Leaf)right;
+            ln.keys[ln.numKeys] = lr.keys[0];
+            ln.data[ln.numKeys] = lr.data[0];
+            System.arraycopy(lr.keys, 1, lr.keys, 0, lr.numKeys - 1);
+            System.arraycopy(lr.data, 1, lr.data, 0, lr.numKeys - 1);
+            lr.data[lr.numKeys - 1] = null;
+            parent.keys[i] = lr.keys[0];
+        } else {
+            Internal in = (Internal)n;
+            Internal ir = (Internal)right;
+            in.keys[in.numKeys] = parent.keys[i];
+            in.children[in.numKeys + 1] = ir.children[0];
+            parent.keys[i] = ir.keys[0];
+            System.arraycopy(ir.keys, 1, ir.keys, 0, ir.numKeys - 1);
+            System.arraycopy(ir.children, 1, ir.children, 0, ir.numKeys);
+            ir.children[ir.numKeys] = null;
+        }
+        n.numKeys++;
+        right.numKeys--;
+    }
+
+    /*
+     * Merges right into left, which are the children of parent on either
+     * side of the separator parent.keys[sep], and removes that separator
+     * and right from the parent.
+     */
+    private static void merge(Internal parent, int sep, Node left, Node right) {
+        if (left instanceof Leaf) {
+            Leaf ll = (Leaf)left;
+            Leaf lr = (Leaf)right;
+            System.arraycopy(lr.keys, 0, ll.keys, ll.numKeys, lr.numKeys);
+            System.arraycopy(lr.data, 0, ll.data, ll.numKeys, lr.numKeys);
+            ll.numKeys += lr.numKeys;
+            ll.next = lr.next;
+            if (ll.next != null) {
+                ll.next.prev = ll;
+            }
+        } else {
+            Internal il = (Internal)left;
+            Internal ir = (Internal)right;
+            il.keys[il.numKeys] = parent.keys[sep];
+            System.arraycopy(ir.keys, 0, il.keys, il.numKeys + 1, ir.numKeys);
+            System.arraycopy(ir.children, 0, il.children, il.numKeys + 1, ir.numKeys + 1);
+            il.numKeys += ir.numKeys + 1;
+        }
+
+        System.arraycopy(parent.keys, sep + 1, parent.keys, sep, parent.numKeys - sep - 1);
+        System.arraycopy(parent.children, sep + 2, parent.children, sep + 1,
+                         parent.numKeys - sep - 1);
+        parent.children[parent.numKeys] = null;
+        parent.numKeys--;
+    }
+
+    /*
+     * Returns the number of keys in the tree.
+     */
+    public int getNumKeys() {
+        return numKeys;
+    }
+
+    /*
+     * Returns the height of the tree: the number of levels of internal
+     * nodes above the leaves.
+     */
+    public int height() {
+        return height;
+    }
+
+    /*
+     * Returns an iterator over the keys k with lo <= k <= hi, in
+     * increasing order. It finds the first such key with one search
+     * and then moves along the leaves.
+     */
+    public LinkedTreeIterator rangeIterator(int lo, int hi) {
+        return new RangeIterator(lo, hi);
+    }
+
+    /* Returns an iterator over all of the keys, in increasing order. */
+    public LinkedTreeIterator inorderIterator() {
+        return new RangeIterator(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /*
+     * inner class for an iterator over a range of keys
+     */
+    private class RangeIterator implements LinkedTreeIterator {
+        private Leaf leaf;      // the leaf that holds the next key, or null
+        private int pos;        // the position of the next key in leaf
+        private int hi;
+
+        private RangeIterator(int lo, int hi) {
+            this.hi = hi;
+            leaf = findLeaf(lo);
+            pos = lowerBound(leaf, lo);
+            advance();
+        }
+
+        /* moves past any leaves whose remaining keys have all been seen */
+        private void advance() {
+            while (leaf != null && pos == leaf.numKeys) {
+                leaf = leaf.next;
+                pos = 0;
+            }
+            if (leaf != null && leaf.keys[pos] > hi) {
+                leaf = null;
+            }
+        }
+
+        public boolean hasNext() {
+            return (leaf != null);
+        }
+
+        public int next() {
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            int key = leaf.keys[pos];
+            pos++;
+            advance();
+            return key;
+        }
+    }
+
+    public static void main(String[] args) {
+        BPlusTree tree = new BPlusTree();
+        int[] list = {26, 12, 4, 18, 7, 32, 38, 30, 36};
+        for (int i = 0; i < list.length; i++) {
+            tree.insert(list[i], "data for key " + list[i]);
+        }
+        tree.insert(18, "more data for key 18");
+        System.out.println(tree.search(18));       // {more data for key 18, data for key 18}
+        System.out.println(tree.search(19));       // null
+        System.out.println(tree.delete(4));        // {data for key 4}
+        System.out.println(tree.getNumKeys());     // 8
+
+        LinkedTreeIterator iter = tree.rangeIterator(10, 32);
+        while (iter.hasNext()) {
+            System.out.print(iter.next() + " ");   // 12 18 26 30 32
+        }
+        System.out.println();
+
+        // many keys in a scrambled order, then delete most of them
+        BPlusTree big = new BPlusTree();
+        int n = 1000000;
+        for (int i = 0; i < n; i++) {
+            int key = (int)((i * 2654435761L) % n);    // a permutation of 0..n-1
+            big.insert(key, null);
+        }
+        System.out.println(big.getNumKeys() + " keys, height " + big.height());    // 1000000 keys, height 3
+        for (int i = 0; i < n; i++) {
+            if (i % 100 != 0) {
+                big.delete(i);
+            }
+        }
+        int count = 0;
+        int prev = -1;
+        boolean sorted = true;
+        iter = big.inorderIterator();
+        while (iter.hasNext()) {
+            int key = iter.next();
+            sorted = sorted && key == prev + 100 - (prev == -1 ? 99 : 0);
+            prev = key;
+            count++;
+        }
+        System.out.println(count + " " + sorted);                   // 10000 true
+        System.out.println(big.search(500) != null && big.search(501) == null);    // true
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * BoundedChainedHashTable.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+import java.util.function.BiConsumer;
+
+/*
+ * A class that implements a hash table using separate chaining that
+ * holds at most a fixed number of keys, for use as a cache.
+ *
+ * When a new key is inserted into a full table, the table evicts
+ * another key, which it chooses using one of two policies:
+ *
+ *   LRU   - evict the least recently used key (inserted or found by
+ *           search). The nodes are threaded onto a doubly linked list
+ *           in order of use, and every hit moves a node to the front.
+ *
+ *   CLOCK - an approximation of LRU that makes hits cheaper. The
+ *           nodes are threaded onto a circular list, and a hit just
+ *           sets the node's referenced bit. To evict, a "clock hand"
+ *           moves around the list, clearing referenced bits, until it
+ *           finds a node whose bit is already clear.
+ *
+ * In both cases, search() remains O(1) on average, and an eviction
+ * listener (if any) is told about every evicted key.
+ */
+public class BoundedChainedHashTable implements HashTable {
+    /*
+     * Private inner class for a node. A node is in the chain for its
+     * bucket (via next) and in the list used by the eviction policy
+     * (via before and after). As in ChainedHashTable, a node is also
+     * the queue of its key's values.
+     */
+    private static class Node extends CompactQueue {
+        private Object key;
+        private Node next;          // the next node in the chain
+        private Node before;        // the neighbors in the eviction list
+        private Node after;
+        private boolean referenced; // CLOCK only: used since the hand passed?
+
+        private Node(Object key, Object value) {
+            super(value);
+            this.key = key;
+        }
+    }
+
+    // possible eviction policies
+    public static final int LRU = 0;
+    public static final int CLOCK = 1;
+
+    private Node[] table;
+    private int numKeys;
+    private int maxKeys;
+    private int policy;
+    private BiConsumer<Object, Queue<Object>> listener;    // may be null
+
+    // The eviction list is circular, with a dummy head node. For LRU,
+    // head.after is the most recently used node and head.before is
+    // the least recently used. For CLOCK, the list is in insertion
+    // order, and hand is the next node that the clock hand will visit.
+    private Node head;
+    private Node hand;
+
+    private long numHits;
+    private long numMisses;
+    private long numEvictions;
+
+    /*
+     * Constructor for a table that holds at most maxKeys keys and uses
+     * the specified eviction policy. The listener (which may be null)
+     * is called with the key and values of each evicted key.
+     */
+    public BoundedChainedHashTable(int maxKeys, int policy,
+                                   BiConsumer<Object, Queue<Object>> listener) {
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("maxKeys must be positive");
+        }
+        if (policy != LRU && policy != CLOCK) {
+            throw new IllegalArgumentException("invalid policy: " + policy);
+        }
+
+        // the table never grows, so size it for a load of at most 0.75
+        table = new Node[HashFunction.MIXING.tableSize((int)Math.min(
+            (long)Math.ceil(maxKeys / 0.75), 1 << 30))];
+        this.maxKeys = maxKeys;
+        this.policy = policy;
+        this.listener = listener;
+
+        head = new Node(null, null);
+        head.before = head;
+        head.after = head;
+        hand = head;
+    }
+
+    public BoundedChainedHashTable(int maxKeys, int policy) {
+        this(maxKeys, policy, null);
+    }
+
+    /* hash function */
+    public int h1(Object key) {
+        return HashFunction.MIXING.h1(key, table.length);
+    }
+
+    /*
+     * findNode - returns the node for the specified key, or null if
+     * the key is not in the table
+     */
+    private Node findNode(Object key) {
+        Node trav = table[h1(key)];
+        while (trav != null && !trav.key.equals(key)) {
+            trav = trav.next;
+        }
+        return trav;
+    }
+
+    /* linkBefore - adds node n to the eviction list just before node pos */
+    private static void linkBefore(Node n, Node pos) {
+        n.after = pos;
+        n.before = pos.before;
+        pos.before.after = n;
+        pos.before = n;
+    }
+
+    /* unlink - removes node n from the eviction list */
+    private void unlink(Node n) {
+        if (hand == n) {
+            hand = n.after;
+        }
+        n.before.after = n.after;
+        n.after.before = n.before;
+        n.before = null;
+        n.after = null;
+    }
+
+    /*
+     * touch - records a use of node n: for LRU, it moves n to the
+     * front of the list, and for CLOCK, it sets n's referenced bit
+     */
+    private void touch(Node n) {
+        if (policy == LRU) {
+            if (head.after != n) {
+                unlink(n);
+                linkBefore(n, head.after);
+            }
+        } else {
+            n.referenced = true;
+        }
+    }
+
+    /*
+     * insert - insert the specified (key, value) pair in the hash table,
+     * evicting another key if the table is full. Always returns true.
+     */
+    public boolean insert(Object key, Object value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+
+        Node n = findNode(key);
+        if (n != null) {
+            n.insert(value);
+            touch(n);
+            return true;
+        }
+
+        if (numKeys == maxKeys) {
+            evict();
+        }
+
+        n = new Node(key, value);
+        int i = h1(key);
+        n.next = table[i];
+        table[i] = n;
+        numKeys++;
+
+        if (policy == LRU) {
+            linkBefore(n, head.after);    // most recently used
+        } else {
+            linkBefore(n, hand);          // last to be visited by the hand
+        }
+        return true;
+    }
+
+    /*
+     * evict - removes the key chosen by the eviction policy and
+     * tells the listener (if any) about it
+     */
+    private void evict() {
+        Node victim;
+        if (policy == LRU) {
+            victim = head.before;
+        } else {
+            while (hand == head || hand.referenced) {
+                hand.referenced = false;
+                hand = hand.after;
+            }
+            victim = hand;
+        }
+
+        removeNode(victim);
+        numEvictions++;
+        if (listener != null) {
+            listener.accept(victim.key, victim);
+        }
+    }
+
+    /*
+     * removeNode - removes the specified node from its chain and from
+     * the eviction list
+     */
+    private void removeNode(Node n) {
+        int i = h1(n.key);
+        if (table[i] == n) {
+            table[i] = n.next;
+        } else {
+            Node trail = table[i];
+            while (trail.next != n) {
+                trail = trail.next;
+            }
+            trail.next = n.next;
+        }
+        n.next = null;
+        unlink(n);
+        numKeys--;
+    }
+
+    /*
+     * search - search for the specified key and return the
+     * associated collection of values, or null if the key
+     * is not in the table. A successful search counts as a
+     * use of the key.
+     */
+    public Queue<Object> search(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+
+        Node n = findNode(key);
+        if (n == null) {
+            numMisses++;
+            return null;
+        }
+        numHits++;
+        touch(n);
+        return n;
+    }
+
+    /*
+     * remove - remove from the table the entry for the specified key
+     * and return the associated collection of values, or null if the key
+     * is not in the table. The listener is not called.
+     */
+    public Queue<Object> remove(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+
+        Node n = findNode(key);
+        if (n == null) {
+            return null;
+        }
+        removeNode(n);
+        return n;
+    }
+
+    public int getNumKeys() {
+        return numKeys;
+    }
+
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    public long getNumHits() {
+        return numHits;
+    }
+
+    public long getNumMisses() {
+        return numMisses;
+    }
+
+    public long getNumEvictions() {
+        return numEvictions;
+    }
+
+    public static void main(String[] args) {
+        BoundedChainedHashTable lru = new BoundedChainedHashTable(3, LRU,
+            (key, values) -> System.out.println("evicted " + key + " " + values));
+        lru.insert("a", 1);
+        lru.insert("b", 2);
+        lru.insert("c", 3);
+        lru.search("a");                      // a is now the most recent
+        lru.insert("d", 4);                   // evicted b {2}
+        System.out.println(lru.search("b"));  // null
+        lru.insert("c", 33);                  // c is now the most recent
+        lru.insert("e", 5);                   // evicted a {1}
+        System.out.println(lru.search("c"));  // {3, 33}
+        System.out.println(lru.getNumKeys() + " keys, " + lru.getNumHits()
+            + " hits, " + lru.getNumMisses() + " misses, "
+            + lru.getNumEvictions() + " evictions");    // 3, 2, 1, 2
+
+        BoundedChainedHashTable clock = new BoundedChainedHashTable(3, CLOCK,
+            (key, values) -> System.out.println("evicted " + key + " " + values));
+        clock.insert("a", 1);
+        clock.insert("b", 2);
+        clock.insert("c", 3);
+        clock.search("a");                    // sets a's referenced bit
+        clock.insert("d", 4);                 // evicted b {2}
+        clock.insert("e", 5);                 // evicted c {3}
+        clock.insert("f", 6);                 // evicted a {1}
+        System.out.println(clock.search("d")); // {4}
+        clock.remove("e");
+        clock.insert("g", 7);                 // no eviction
+        System.out.println(clock.getNumKeys());    // 3
+    }
+}
@@ -9,6 +9,12 @@
  */
 
 import java.util.*;     // to allow for the use of Arrays.toString() in testing
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
 
 /*
  * A class that implements a hash table using separate chaining.
@@ -16,41 +22,224 @@ import java.util.*;     // to allow for the use of Arrays.toString() in testing
 public class ChainedHashTable implements HashTable {
     /* 
      * Private inner class for a node in a linked list
-     * for a given position of the hash table
+     * for a given position of the hash table. A node is also
+     * the queue of all of the values with its key, and the
+     * (key, values) pair returned by the entry iterators.
      */
-    private class Node {
+    private static class Node extends CompactQueue
+                              implements Map.Entry<Object, Queue<Object>> {
         private Object key;
-        private LLQueue<Object> values;
         private Node next;
         
         private Node(Object key, Object value) {
+            super(value);
             this.key = key;
-            values = new LLQueue<Object>();
-            values.insert(value);
             next = null;
         }
+        
+        public Object getKey() {
+            return key;
+        }
+        
+        public Queue<Object> getValue() {
+            return this;
+        }
+        
+        public Queue<Object> setValue(Queue<Object> values) {
+            throw new UnsupportedOperationException();
+        }
     }
     
     private Node[] table;      // the hash table itself
     private int numKeys;       // the total number of keys in the table
     private int size;
+    
+    // fields for incremental resizing (see the two-argument constructor)
+    private Node[] oldTable;   // table being migrated into table, or null
+    private int migrateIndex;  // next bucket of oldTable to be migrated
+    private int migrateStep;   // buckets migrated per operation (at least MIGRATE_STEP)
+    private double maxLoad;    // load that triggers growth; 0 if disabled
+    private double minLoad;    // load that triggers shrinking; 0 if disabled
+    private int minSize;       // the table never shrinks below this size
+    private HashFunction hashFunction;    // used by h1()
+    
+    private HashTableStats stats;    // null unless enableStats() was called
+    private int lastProbes;          // nodes examined by the last findNode()
+    
+    // smallest number of old buckets migrated by each insert/search/remove
+    private static final int MIGRATE_STEP = 4;
+    
+    // number of keys whose buckets are touched together by searchAll()
+    private static final int BATCH_SIZE = 32;
+    
+    // build() uses at most this many partitions per available processor
+    private static final int PARTS_PER_PROCESSOR = 4;
         
     /* hash function */
     public int h1(Object key) {
-        int h1 = key.hashCode() % table.length;
-        if (h1 < 0) {
-            h1 += table.length;
-        }
-        return h1;
+        return hashIndex(key, table.length);
+    }
+    
+    /* 
+     * hashIndex - returns the position of the specified key in
+     * a table of the specified length
+     */
+    private int hashIndex(Object key, int length) {
+        return hashFunction.h1(key, length);
     }
     
     /*** Add your constructor here ***/
     public ChainedHashTable(int size) {
+        this(size, HashFunction.MODULO);
+    }
+    
+    /*
+     * Constructor for a hash table that uses the specified hash
+     * function. The table may be larger than the specified size
+     * if the hash function needs it to be.
+     */
+    public ChainedHashTable(int size, HashFunction hashFunction) {
         if (size <= 0) {
             throw new IllegalArgumentException("size must be positive");
         }
-        table = new Node[size];
-        this.size = size;
+        if (hashFunction == null) {
+            throw new IllegalArgumentException("hashFunction must be non-null");
+        }
+        this.hashFunction = hashFunction;
+        this.size = hashFunction.tableSize(size);
+        minSize = this.size;
+        table = new Node[this.size];
+    }
+    
+    /*
+     * Constructor for a hash table that grows automatically. Once load()
+     * exceeds maxLoad, the table roughly doubles in size, and the keys
+     * in the old table are migrated a few buckets at a time by each subsequent
+     * insert, search, or remove, so that no single call pays for
+     * the whole rehash. The table also shrinks when load() falls
+     * below maxLoad / 8 (see setMinLoad()).
+     */
+    public ChainedHashTable(int size, double maxLoad) {
+        this(size, maxLoad, HashFunction.MODULO);
+    }
+    
+    public ChainedHashTable(int size, double maxLoad, HashFunction hashFunction) {
+        this(size, hashFunction);
+        if (maxLoad <= 0) {
+            throw new IllegalArgumentException("maxLoad must be positive");
+        }
+        setMaxLoad(maxLoad);
+        setMinLoad(maxLoad / 8);
+    }
+    
+    /*
+     * migrateStep - moves up to migrateStep buckets of the old table
+     * (if any) into the current table. The nodes are relinked, so
+     * no new nodes are created.
+     */
+    private void migrateStep() {
+        if (oldTable == null) {
+            return;
+        }
+        long start = (stats != null) ? System.nanoTime() : 0;
+        
+        int end = (int)Math.min((long)migrateIndex + migrateStep, oldTable.length);
+        while (migrateIndex < end) {
+            Node trav = oldTable[migrateIndex];
+            oldTable[migrateIndex] = null;
+            while (trav != null) {
+                Node next = trav.next;
+                int i = h1(trav.key);
+                trav.next = table[i];
+                table[i] = trav;
+                trav = next;
+            }
+            migrateIndex++;
+        }
+        
+        if (migrateIndex == oldTable.length) {
+            oldTable = null;
+        }
+        if (stats != null) {
+            stats.recordResizeTime(System.nanoTime() - start);
+        }
+    }
+    
+    /*
+     * setMigrateStep - chooses the number of buckets that each operation
+     * migrates, so that the old table is empty before enough inserts
+     * have happened to make the table grow again (each insert migrates
+     * before it adds its key). With the default doubling, MIGRATE_STEP
+     * is plenty, but a small maxLoad leaves fewer inserts than old buckets.
+     */
+    private void setMigrateStep() {
+        if (oldTable == null) {
+            return;
+        }
+        long remaining = oldTable.length - migrateIndex;
+        long insertsLeft = 1;
+        if (maxLoad > 0) {
+            insertsLeft = Math.max(1, (long)Math.floor(maxLoad * size) - numKeys + 1);
+        }
+        long step = (remaining + insertsLeft - 1) / insertsLeft;
+        migrateStep = (int)Math.min(Math.max(step, MIGRATE_STEP), Integer.MAX_VALUE);
+    }
+    
+    /*
+     * finishMigration - migrates whatever is left of the old table.
+     * The migration step is sized so that growth never has to do this;
+     * the other callers are operations that need every key in table.
+     */
+    private void finishMigration() {
+        while (oldTable != null) {
+            migrateStep();
+        }
+    }
+    
+    /*
+     * startGrowth - replaces the table with one that is about twice as large
+     * and begins migrating the keys of the old table into it.
+     */
+    private void startGrowth() {
+        finishMigration();
+        long start = (stats != null) ? System.nanoTime() : 0;
+        oldTable = table;
+        migrateIndex = 0;
+        table = new Node[hashFunction.growSize(oldTable.length)];
+        size = table.length;
+        setMigrateStep();
+        if (stats != null) {
+            stats.recordResize(System.nanoTime() - start);
+        }
+    }
+    
+    /*
+     * findNode - returns the node for the specified key in either
+     * the current table or the table being migrated, or null if
+     * the key is not in the table
+     */
+    private Node findNode(Object key) {
+        lastProbes = 0;
+        Node trav = table[h1(key)];
+        while (trav != null) {
+            lastProbes++;
+            if (trav.key.equals(key)) {
+                return trav;
+            }
+            trav = trav.next;
+        }
+        
+        if (oldTable != null) {
+            trav = oldTable[hashIndex(key, oldTable.length)];
+            while (trav != null) {
+                lastProbes++;
+                if (trav.key.equals(key)) {
+                    return trav;
+                }
+                trav = trav.next;
+            }
+        }
+        return null;
     }
     
     /*
@@ -63,26 +252,337 @@ public class ChainedHashTable implements HashTable {
             throw new IllegalArgumentException("key must be non-null");
         }
 
-        int i = h1(key);
-        Node trav = table[i];
+        migrateStep();
         
-        // check if chain already has key
-        while (trav != null) {
-            if (trav.key.equals(key)) {
-                return true;
-            }
-            trav = trav.next;
+        // if the table already has key, add value to its values
+        Node n = findNode(key);
+        if (n != null) {
+            n.insert(value);
+            return true;
         }
 
         // otherwise, add key to beginning of chain
+        int i = h1(key);
         Node storage = table[i]; // carries temporary chain
         table[i] = new Node(key, value); // new node at front
         table[i].next = storage;
 
         numKeys++;
+        if (maxLoad > 0 && load() > maxLoad) {
+            startGrowth();
+        }
+        return true;
+    }
+    
+    /*
+     * insertAll - inserts the pair (keys[i], values[i]) for every i.
+     * The arguments are checked once, up front, and the table is
+     * resized (at most) once, to a size that can hold all of the keys
+     * without exceeding maxLoad (or a load of 1 if the table doesn't
+     * grow automatically). The keys are then inserted in batches, as
+     * described in searchAll(). Always returns true.
+     */
+    public boolean insertAll(Object[] keys, Object[] values) {
+        if (keys == null || values == null) {
+            throw new IllegalArgumentException("keys and values must be non-null");
+        }
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("keys and values must have the same length");
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) {
+                throw new IllegalArgumentException("key must be non-null");
+            }
+        }
+        
+        double targetLoad = (maxLoad > 0) ? maxLoad : 1.0;
+        long needed = (long)Math.ceil((numKeys + keys.length) / targetLoad);
+        if (needed > size) {
+            relink((int)Math.min(needed, 1 << 30));
+        } else {
+            finishMigration();
+        }
+        
+        int[] buckets = new int[BATCH_SIZE];
+        Object[] firstKeys = new Object[BATCH_SIZE];
+        for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, keys.length);
+            touchBuckets(keys, start, end, buckets, firstKeys);
+            
+            for (int k = start; k < end; k++) {
+                int i = buckets[k - start];
+                Node trav = table[i];
+                while (trav != null && !trav.key.equals(keys[k])) {
+                    trav = trav.next;
+                }
+                
+                if (trav != null) {
+                    trav.insert(values[k]);
+                } else {
+                    Node newNode = new Node(keys[k], values[k]);
+                    newNode.next = table[i];
+                    table[i] = newNode;
+                    numKeys++;
+                }
+            }
+        }
         return true;
     }
     
+    /*
+     * touchBuckets - computes the bucket of each of keys[start..end-1]
+     * and loads the key of the first node in each of those buckets
+     * (into buckets and firstKeys, starting at position 0). The
+     * callers have already checked that none of the keys are null.
+     *
+     * Java has no prefetch instruction, but the loads in this loop
+     * don't depend on each other, so the processor can wait for many
+     * cache misses at once rather than one at a time. By the time the
+     * keys are compared, most of the nodes are already in the cache.
+     */
+    private void touchBuckets(Object[] keys, int start, int end,
+                              int[] buckets, Object[] firstKeys) {
+        for (int k = start; k < end; k++) {
+            buckets[k - start] = h1(keys[k]);
+        }
+        for (int j = 0; j < end - start; j++) {
+            Node first = table[buckets[j]];
+            firstKeys[j] = (first == null) ? null : first.key;
+        }
+    }
+    
+    /*
+     * searchAll - searches for each of the specified keys, putting the
+     * result of search(keys[i]) in results[i], and returns the array of
+     * results (a new one if results is null or too short).
+     *
+     * The keys are handled in batches of BATCH_SIZE. The buckets of
+     * all of the keys in a batch are computed and touched first (see
+     * touchBuckets()), and then each key is looked for in its chain.
+     */
+    public Queue<Object>[] searchAll(Object[] keys, Queue<Object>[] results) {
+        if (oldTable != null || stats != null) {
+            // let search() migrate buckets and record statistics
+            return HashTable.super.searchAll(keys, results);
+        }
+        if (keys == null) {
+            throw new IllegalArgumentException("keys must be non-null");
+        }
+        for (int k = 0; k < keys.length; k++) {
+            if (keys[k] == null) {
+                throw new IllegalArgumentException("key must be non-null");
+            }
+        }
+        if (results == null || results.length < keys.length) {
+            results = HashTable.newResults(keys.length);
+        }
+        
+        int[] buckets = new int[BATCH_SIZE];
+        Object[] firstKeys = new Object[BATCH_SIZE];
+        for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, keys.length);
+            touchBuckets(keys, start, end, buckets, firstKeys);
+            
+            for (int k = start; k < end; k++) {
+                Node trav = table[buckets[k - start]];
+                if (trav != null && !keys[k].equals(firstKeys[k - start])) {
+                    trav = trav.next;
+                    while (trav != null && !trav.key.equals(keys[k])) {
+                        trav = trav.next;
+                    }
+                }
+                results[k] = trav;
+            }
+        }
+        return results;
+    }
+    
+    /*
+     * build - creates a table containing the pairs (keys[i], values[i]),
+     * sized for a load of about 0.75, using the specified number of
+     * threads. The result is the same as inserting the pairs in order.
+     *
+     * The work is done in three parallel phases. First, the keys are
+     * split into one chunk per thread, and each thread computes the
+     * bucket of each key in its chunk and counts how many of them fall
+     * in each partition (a range of buckets). Second, each thread uses
+     * those counts to copy the positions of its keys into an array
+     * ordered by partition. Finally, each thread builds the chains of
+     * one partition. Because no two partitions share a bucket, no
+     * locking is needed.
+     *
+     * The phases use parallelism chunks and partitions, but no more than
+     * PARTS_PER_PROCESSOR per available processor, because the table of
+     * counts has one entry per (chunk, partition) pair.
+     */
+    public static ChainedHashTable build(Object[] keys, Object[] values,
+                                         int parallelism) {
+        if (keys == null || values == null) {
+            throw new IllegalArgumentException("keys and values must be non-null");
+        }
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("keys and values must have the same length");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) {
+                throw new IllegalArgumentException("key must be non-null");
+            }
+        }
+        
+        int n = keys.length;
+        ChainedHashTable result = new ChainedHashTable((int)Math.min(
+            Math.max(1, (long)Math.ceil(n / 0.75)), 1 << 30));
+        Node[] table = result.table;
+        int numParts = (int)Math.min(parallelism,
+            (long)PARTS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors());
+        
+        int[] bucket = new int[n];         // the bucket of each key
+        int[] order = new int[n];          // key positions, by partition
+        int[][] counts = new int[numParts][numParts];   // [chunk][partition]
+        int[] partStart = new int[numParts + 1];
+        
+        ForkJoinPool pool = new ForkJoinPool(numParts);
+        try {
+            // phase 1: buckets, and counts of keys per chunk and partition
+            java.util.List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+            for (int c = 0; c < numParts; c++) {
+                final int chunk = c;
+                tasks.add(() -> {
+                    int[] chunkCounts = counts[chunk];
+                    int end = chunkStart(chunk + 1, numParts, n);
+                    for (int k = chunkStart(chunk, numParts, n); k < end; k++) {
+                        bucket[k] = result.h1(keys[k]);
+                        chunkCounts[partitionOf(bucket[k], numParts, table.length)]++;
+                    }
+                    return 0;
+                });
+            }
+            runAll(pool, tasks);
+            
+            // turn the counts into each chunk's first position in order
+            int pos = 0;
+            for (int p = 0; p < numParts; p++) {
+                partStart[p] = pos;
+                for (int c = 0; c < numParts; c++) {
+                    int count = counts[c][p];
+                    counts[c][p] = pos;
+                    pos += count;
+                }
+            }
+            partStart[numParts] = pos;
+            
+            // phase 2: the positions of the keys, grouped by partition
+            tasks.clear();
+            for (int c = 0; c < numParts; c++) {
+                final int chunk = c;
+                tasks.add(() -> {
+                    int[] next = counts[chunk];
+                    int end = chunkStart(chunk + 1, numParts, n);
+                    for (int k = chunkStart(chunk, numParts, n); k < end; k++) {
+                        order[next[partitionOf(bucket[k], numParts, table.length)]++] = k;
+                    }
+                    return 0;
+                });
+            }
+            runAll(pool, tasks);
+            
+            // phase 3: the chains of each partition
+            tasks.clear();
+            for (int p = 0; p < numParts; p++) {
+                final int part = p;
+                tasks.add(() -> {
+                    int newKeys = 0;
+                    for (int j = partStart[part]; j < partStart[part + 1]; j++) {
+                        int k = order[j];
+                        int i = bucket[k];
+                        Node trav = table[i];
+                        while (trav != null && !trav.key.equals(keys[k])) {
+                            trav = trav.next;
+                        }
+                        
+                        if (trav != null) {
+                            trav.insert(values[k]);
+                        } else {
+                            Node newNode = new Node(keys[k], values[k]);
+                            newNode.next = table[i];
+                            table[i] = newNode;
+                            newKeys++;
+                        }
+                    }
+                    return newKeys;
+                });
+            }
+            for (int newKeys : runAll(pool, tasks)) {
+                result.numKeys += newKeys;
+            }
+        } finally {
+            pool.shutdown();
+        }
+        
+        return result;
+    }
+    
+    /* chunkStart - the first key position of the specified chunk */
+    private static int chunkStart(int chunk, int numChunks, int n) {
+        return (int)((long)chunk * n / numChunks);
+    }
+    
+    /* partitionOf - the partition that contains the specified bucket */
+    private static int partitionOf(int bucket, int numParts, int numBuckets) {
+        return (int)((long)bucket * numParts / numBuckets);
+    }
+    
+    /*
+     * runAll - runs the specified tasks in the specified pool, waits for
+     * all of them to finish, and returns their results
+     */
+    private static java.util.List<Integer> runAll(ForkJoinPool pool,
+            java.util.List<Callable<Integer>> tasks) {
+        java.util.List<Integer> results = new ArrayList<Integer>();
+        try {
+            for (Future<Integer> f : pool.invokeAll(tasks)) {
+                results.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("build was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("build failed", e.getCause());
+        }
+        return results;
+    }
+    
+    /*
+     * relink - replaces the table with one of (at least) the specified
+     * size, moving the existing nodes into it rather than creating
+     * new ones
+     */
+    private void relink(int newSize) {
+        finishMigration();
+        long start = (stats != null) ? System.nanoTime() : 0;
+        
+        Node[] old = table;
+        table = new Node[hashFunction.tableSize(newSize)];
+        size = table.length;
+        for (int j = 0; j < old.length; j++) {
+            Node trav = old[j];
+            while (trav != null) {
+                Node next = trav.next;
+                int i = h1(trav.key);
+                trav.next = table[i];
+                table[i] = trav;
+                trav = next;
+            }
+        }
+        
+        if (stats != null) {
+            stats.recordResize(System.nanoTime() - start);
+        }
+    }
+    
     /*
      * search - search for the specified key and return the
      * associated collection of values, or null if the key 
@@ -93,16 +593,16 @@ public class ChainedHashTable implements HashTable {
             throw new IllegalArgumentException("key must be non-null");
         }
 
-        int i = h1(key);
-        Node trav = table[i];
-
-        while (trav != null) {
-            if (trav.key.equals(key)) {
-                return trav.values;
-            }
-            trav = trav.next;
+        migrateStep();
+        
+        Node n = findNode(key);
+        if (stats != null && stats.sample()) {
+            stats.recordSearch(n != null, lastProbes);
         }
-        return null;
+        if (n == null) {
+            return null;
+        }
+        return n;
     }
     
     /* 
@@ -115,19 +615,41 @@ public class ChainedHashTable implements HashTable {
             throw new IllegalArgumentException("key must be non-null");
         }
 
-        int i = h1(key);
-        Node trav = table[i];
+        migrateStep();
+        
+        Queue<Object> removed = removeFromChain(table, h1(key), key);
+        if (removed == null && oldTable != null) {
+            removed = removeFromChain(oldTable, hashIndex(key, oldTable.length), key);
+        }
+        if (removed != null && minLoad > 0 && load() < minLoad) {
+            shrink();
+        }
+        return removed;
+    }
+    
+    /*
+     * removeFromChain - removes the node for the specified key from
+     * the chain at position i of the specified bucket array, and returns
+     * the associated collection of values, or null if the key is
+     * not in that chain. The removed node is also the queue of values,
+     * so its next field is cleared; otherwise, a caller that kept the
+     * queue would also keep the rest of the chain alive.
+     */
+    private Queue<Object> removeFromChain(Node[] buckets, int i, Object key) {
+        Node trav = buckets[i];
         Node trail = null;
 
         while (trav != null) {
             if (trav.key.equals(key) && trail == null) {
-                Queue<Object> removed = trav.values;
-                table[i] = table[i].next;
+                Queue<Object> removed = trav;
+                buckets[i] = buckets[i].next;
+                trav.next = null;
                 numKeys--;
                 return removed;
             } else if (trav.key.equals(key) && trail != null) {
-                Queue<Object> removed = trav.values;
+                Queue<Object> removed = trav;
                 trail.next = trav.next;
+                trav.next = null;
                 numKeys--;
                 return removed;
             }
@@ -164,7 +686,7 @@ public class ChainedHashTable implements HashTable {
     public Object[] getAllKeys() {
         Object[] list = new Object[numKeys];
         int keyNums = 0;
-        for (int i = 0; i < size; i++) {
+        for (int i = 0; i < table.length; i++) {
             Node trav = table[i];
             while (trav != null) {
                 list[keyNums] = trav.key;
@@ -172,28 +694,233 @@ public class ChainedHashTable implements HashTable {
                 trav = trav.next;
             }
         }
+        if (oldTable != null) {
+            for (int i = migrateIndex; i < oldTable.length; i++) {
+                Node trav = oldTable[i];
+                while (trav != null) {
+                    list[keyNums] = trav.key;
+                    keyNums++;
+                    trav = trav.next;
+                }
+            }
+        }
         return list;
     }
 
+    /*
+     * resize - grows the table to the specified size. The existing nodes
+     * are moved into the new table, so no nodes or value queues are
+     * created and the values are left untouched.
+     */
     public void resize(int newSize) {
         if (newSize <= size) {
             throw new IllegalArgumentException("Value of resize() should be larger than the current size.");
         }
-        ChainedHashTable newTable = new ChainedHashTable(newSize);
+        relink(newSize);
+    }
+    
+    /*
+     * shrink - halves the size of the table (but not below the size
+     * that it was created with), relinking the existing nodes
+     */
+    private void shrink() {
+        if (size / 2 >= minSize) {
+            relink(size / 2);
+        }
+    }
+    
+    /*
+     * setMaxLoad - makes the table grow automatically whenever load()
+     * exceeds maxLoad (as if it had been created by the two-argument
+     * constructor). A maxLoad of 0 turns automatic growth off.
+     */
+    public void setMaxLoad(double maxLoad) {
+        if (maxLoad < 0) {
+            throw new IllegalArgumentException("maxLoad must be non-negative");
+        }
+        if (maxLoad > 0 && maxLoad < 4 * minLoad) {
+            throw new IllegalArgumentException("maxLoad must be at least 4 * minLoad");
+        }
+        this.maxLoad = maxLoad;
+        if (maxLoad > 0 && load() > maxLoad) {
+            startGrowth();
+        } else {
+            setMigrateStep();    // a migration may have fewer inserts left
+        }
+    }
+    
+    /*
+     * setMinLoad - makes the table shrink to half its size whenever a
+     * remove leaves load() below minLoad, so that memory is given back
+     * after many keys are removed. The table never becomes smaller than
+     * the size that it was created with. minLoad must be at most a
+     * quarter of maxLoad, so that a table that has just shrunk (or
+     * grown) is far from growing (or shrinking) again. A minLoad of
+     * 0 turns automatic shrinking off.
+     */
+    public void setMinLoad(double minLoad) {
+        if (minLoad < 0) {
+            throw new IllegalArgumentException("minLoad must be non-negative");
+        }
+        if (maxLoad > 0 && minLoad > maxLoad / 4) {
+            throw new IllegalArgumentException("minLoad must be at most maxLoad / 4");
+        }
+        this.minLoad = minLoad;
+    }
+    
+    /*
+     * entryIterator - returns an iterator over the (key, values) pairs
+     * in the table. The pairs are the table's own nodes, so iterating
+     * allocates nothing beyond the iterator itself. The table should
+     * not be modified while the iterator is in use.
+     */
+    public Iterator<Map.Entry<Object, Queue<Object>>> entryIterator() {
+        finishMigration();    // so that every key is in table
+        return new EntryIterator(table, 0, table.length);
+    }
+    
+    /*
+     * keyIterator - returns an iterator over the keys in the table.
+     * The table should not be modified while the iterator is in use.
+     */
+    public Iterator<Object> keyIterator() {
+        return new KeyIterator();
+    }
+    
+    /*
+     * spliterator - returns a Spliterator over the (key, values) pairs
+     * in the table, which splits by ranges of buckets. It can be used
+     * to process the table with a parallel stream:
+     *
+     *     StreamSupport.stream(table.spliterator(), true)
+     *
+     * The table should not be modified while the stream is in use.
+     */
+    public Spliterator<Map.Entry<Object, Queue<Object>>> spliterator() {
+        finishMigration();
+        return new EntryIterator(table, 0, table.length);
+    }
+    
+    /*
+     * inner class for an iterator over the nodes in the buckets
+     * start to end - 1 of the specified table. It is also a
+     * Spliterator, which splits off the second half of its
+     * remaining buckets.
+     */
+    private class EntryIterator
+            implements Iterator<Map.Entry<Object, Queue<Object>>>,
+                       Spliterator<Map.Entry<Object, Queue<Object>>> {
+        private Node[] buckets;
+        private Node nextNode;    // the node that next() will return
+        private int index;        // the bucket after the one containing nextNode
+        private int end;          // the bucket at which to stop
         
-        for (int i = 0; i < table.length; i++) {
-            if (table[i] != null) {
-                Node trav = table[i];
-                while (trav != null) {
-                    while(!trav.values.isEmpty()) {
-                        newTable.insert(trav.key, trav.values.remove());
-                    }
-                    trav = trav.next;
-                }
+        private EntryIterator(Node[] buckets, int start, int end) {
+            this.buckets = buckets;
+            this.index = start;
+            this.end = end;
+            findNext(null);
+        }
+        
+        /*
+         * findNext - sets nextNode to the node after the specified one,
+         * moving on to the next non-empty bucket if necessary
+         */
+        private void findNext(Node after) {
+            nextNode = (after == null) ? null : after.next;
+            while (nextNode == null && index < end) {
+                nextNode = buckets[index];
+                index++;
+            }
+        }
+        
+        public boolean hasNext() {
+            return (nextNode != null);
+        }
+        
+        public Map.Entry<Object, Queue<Object>> next() {
+            if (nextNode == null) {
+                throw new NoSuchElementException();
+            }
+            Node n = nextNode;
+            findNext(n);
+            return n;
+        }
+        
+        public boolean tryAdvance(Consumer<? super Map.Entry<Object, Queue<Object>>> action) {
+            if (nextNode == null) {
+                return false;
+            }
+            action.accept(next());
+            return true;
+        }
+        
+        public void forEachRemaining(Consumer<? super Map.Entry<Object, Queue<Object>>> action) {
+            while (nextNode != null) {
+                action.accept(next());
             }
         }
-        this.table = newTable.table;
-        return;
+        
+        public Spliterator<Map.Entry<Object, Queue<Object>>> trySplit() {
+            int mid = (index + end) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            EntryIterator secondHalf = new EntryIterator(buckets, mid, end);
+            end = mid;
+            return secondHalf;
+        }
+        
+        public long estimateSize() {
+            int numBuckets = end - index + (nextNode != null ? 1 : 0);
+            return (long)numKeys * numBuckets / buckets.length;
+        }
+        
+        public int characteristics() {
+            return DISTINCT | NONNULL;
+        }
+    }
+    
+    /*
+     * inner class for an iterator over the keys in the table
+     */
+    private class KeyIterator implements Iterator<Object> {
+        private Iterator<Map.Entry<Object, Queue<Object>>> entries = entryIterator();
+        
+        public boolean hasNext() {
+            return entries.hasNext();
+        }
+        
+        public Object next() {
+            return entries.next().getKey();
+        }
+    }
+    
+    /*
+     * enableStats - starts collecting statistics about this table,
+     * recording one out of every sampleInterval searches
+     */
+    public void enableStats(int sampleInterval) {
+        stats = new HashTableStats(sampleInterval);
+    }
+    
+    /*
+     * disableStats - stops collecting statistics about this table
+     */
+    public void disableStats() {
+        stats = null;
+    }
+    
+    /*
+     * getStats - returns the statistics collected since enableStats()
+     * was called, or null if they aren't being collected. The probe
+     * counts are the numbers of chain nodes examined.
+     */
+    public HashTableStats getStats() {
+        if (stats != null) {
+            stats.setTableState(numKeys, 0, table.length);
+        }
+        return stats;
     }
     
     /*
@@ -201,13 +928,33 @@ public class ChainedHashTable implements HashTable {
      * object. *** You should NOT change this method. ***
      */
     public String toString() {
+        // The keys still in the old table are shown in the buckets that
+        // migration will move them to, in front of the keys already
+        // there, just as they will be once they are migrated.
+        String[] pending = new String[table.length];
+        if (oldTable != null) {
+            for (int j = migrateIndex; j < oldTable.length; j++) {
+                for (Node trav = oldTable[j]; trav != null; trav = trav.next) {
+                    int i = h1(trav.key);
+                    pending[i] = (pending[i] == null) ? "" + trav.key
+                                                      : trav.key + "; " + pending[i];
+                }
+            }
+        }
+        
         String s = "[";
         
         for (int i = 0; i < table.length; i++) {
-            if (table[i] == null) {
+            if (table[i] == null && pending[i] == null) {
                 s += "null";
             } else {
                 String keys = "{";
+                if (pending[i] != null) {
+                    keys += pending[i];
+                    if (table[i] != null) {
+                        keys += "; ";
+                    }
+                }
                 Node trav = table[i];
                 while (trav != null) {
                     keys += trav.key;
@@ -262,6 +1009,7 @@ public class ChainedHashTable implements HashTable {
         table3.insert("howdy", 25);    // insert a duplicate
         Object[] keys = table3.getAllKeys();
         System.out.println(Arrays.toString(keys));
+        System.out.println(table3.search("howdy"));    // {15, 25}
 
         System.out.println();
         
@@ -272,5 +1020,97 @@ public class ChainedHashTable implements HashTable {
         System.out.println(table4);
         table4.resize(7);
         System.out.println(table4);
+        System.out.println(table4.search("howdy"));    // {15}
+        System.out.println(table4.load());             // 3/7
+
+        System.out.println();
+
+        ChainedHashTable table5 = new ChainedHashTable(2, 0.75);
+        for (int i = 0; i < 20; i++) {
+            table5.insert(i, "value " + i);
+        }
+        System.out.println(table5.getNumKeys());    // 20
+        System.out.println(table5.search(7));       // {value 7}
+        System.out.println(table5.remove(13));      // {value 13}
+        System.out.println(table5.search(13));      // null
+        System.out.println(table5.load());
+        System.out.println(table5);
+
+        System.out.println();
+
+        ChainedHashTable table6 = new ChainedHashTable(4, 1.0);
+        table6.enableStats(1);
+        for (int i = 0; i < 100; i++) {
+            table6.insert(i, i);
+        }
+        for (int i = 0; i < 200; i++) {
+            table6.search(i);    // 100 hits and 100 misses
+        }
+        System.out.println(table6.getStats());
+
+        System.out.println();
+
+        ChainedHashTable table7 = new ChainedHashTable(2);
+        Object[] words = { "one", "two", "three", "two" };
+        Object[] nums = { 1, 2, 3, 22 };
+        table7.insertAll(words, nums);
+        System.out.println(table7.getNumKeys());      // 3
+        System.out.println(table7.search("two"));     // {2, 22}
+        System.out.println(table7.load() <= 1.0);     // true
+
+        System.out.println();
+
+        Iterator<Object> keyIter = table7.keyIterator();
+        while (keyIter.hasNext()) {
+            System.out.print(keyIter.next() + " ");    // in bucket order
+        }
+        System.out.println();
+        Iterator<Map.Entry<Object, Queue<Object>>> entryIter = table7.entryIterator();
+        while (entryIter.hasNext()) {
+            Map.Entry<Object, Queue<Object>> e = entryIter.next();
+            System.out.print(e.getKey() + "=" + e.getValue() + " ");
+        }
+        System.out.println();
+
+        ChainedHashTable table8 = new ChainedHashTable(16, 0.75);
+        for (int i = 1; i <= 100000; i++) {
+            table8.insert(i, i);
+        }
+        long sum = StreamSupport.stream(table8.spliterator(), true)
+            .mapToLong(e -> (Integer)e.getKey())
+            .sum();
+        System.out.println(sum);    // 5000050000
+
+        Object[] manyKeys = new Object[100000];
+        Object[] manyValues = new Object[100000];
+        for (int i = 0; i < manyKeys.length; i++) {
+            manyKeys[i] = i % 60000;    // so that some keys are duplicated
+            manyValues[i] = i;
+        }
+        ChainedHashTable table9 = ChainedHashTable.build(manyKeys, manyValues, 4);
+        System.out.println(table9.getNumKeys());      // 60000
+        System.out.println(table9.search(12345));     // {12345, 72345}
+        System.out.println(table9.search(60000));     // null
+
+        System.out.println();
+
+        ChainedHashTable table10 = new ChainedHashTable(16, 1.0, HashFunction.MIXING);
+        for (int i = 0; i < 100000; i++) {
+            table10.insert(i, i);
+        }
+        System.out.println(table10.load() > 0.5);      // true
+        for (int i = 0; i < 99990; i++) {
+            table10.remove(i);
+        }
+        System.out.println(table10.getNumKeys());      // 10
+        System.out.println(table10.load() >= 0.125);   // true: it shrank
+        System.out.println(table10.search(99995));     // {99995}
+        System.out.println(table10.search(5));         // null
+
+        System.out.println();
+
+        Object[] batch = { 99995, 5, 99999 };
+        System.out.println(Arrays.toString(table10.searchAll(batch, null)));    // [{99995}, null, {99999}]
+        System.out.println(Arrays.toString(table8.searchAll(batch, null)));     // [{99995}, {5}, {99999}]
     }
 }
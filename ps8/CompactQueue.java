@@ -0,0 +1,165 @@
+/*
+ * CompactQueue.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+/*
+ * A class that implements our Queue interface in a way that is
+ * compact when the queue holds only one item, which is the common
+ * case for the collections of values in our hash tables.
+ *
+ * A single item is stored in a field of the object itself.  When
+ * a second item is inserted, the queue switches to a circular array
+ * that doubles in size whenever it fills up.  The entries and nodes
+ * of the hash tables extend this class, so that a key with one value
+ * needs just one object beyond the key and the value.
+ */
+public class CompactQueue implements Queue<Object> {
+    private Object first;       // the only item, when items is null
+    private Object[] items;     // the items, once there have been two
+    private int front;          // the index of the item at the front of items
+    private int numItems;       // the number of items in the queue
+
+    /*
+     * Constructs a CompactQueue object for a queue that is initially
+     * empty.
+     */
+    public CompactQueue() {
+    }
+
+    /*
+     * Constructs a CompactQueue object for a queue that initially
+     * contains the specified item.
+     */
+    public CompactQueue(Object item) {
+        first = item;
+        numItems = 1;
+    }
+
+    /*
+     * isEmpty - returns true if the queue is empty, and false otherwise
+     */
+    public boolean isEmpty() {
+        return (numItems == 0);
+    }
+
+    /*
+     * isFull - always returns false, because the array grows as needed
+     * and thus the queue is never full.
+     */
+    public boolean isFull() {
+        return false;
+    }
+
+    /*
+     * insert - adds the specified item at the rear of the queue.
+     * Always returns true, because the queue is never full.
+     */
+    public boolean insert(Object item) {
+        if (items == null) {
+            if (numItems == 0) {
+                first = item;
+                numItems = 1;
+                return true;
+            }
+
+            // inflate: move the single item into an array
+            items = new Object[4];
+            items[0] = first;
+            first = null;
+            front = 0;
+        } else if (numItems == items.length) {
+            Object[] bigger = new Object[2 * items.length];
+            for (int i = 0; i < numItems; i++) {
+                bigger[i] = items[(front + i) % items.length];
+            }
+            items = bigger;
+            front = 0;
+        }
+
+        items[(front + numItems) % items.length] = item;
+        numItems++;
+        return true;
+    }
+
+    /*
+     * remove - removes the item at the front of the queue and returns a
+     * reference to the removed object.  Returns null if the queue is
+     * empty.
+     */
+    public Object remove() {
+        if (isEmpty()) {
+            return null;
+        }
+
+        Object removed;
+        if (items == null) {
+            removed = first;
+            first = null;
+        } else {
+            removed = items[front];
+            items[front] = null;
+            front = (front + 1) % items.length;
+        }
+        numItems--;
+        return removed;
+    }
+
+    /*
+     * peek - returns a reference to the item at the front of the queue
+     * without removing it. Returns null if the queue is empty.
+     */
+    public Object peek() {
+        if (isEmpty()) {
+            return null;
+        } else if (items == null) {
+            return first;
+        } else {
+            return items[front];
+        }
+    }
+
+    /*
+     * size - returns the number of items in the queue
+     */
+    int size() {
+        return numItems;
+    }
+
+    /*
+     * get - returns the item that is i positions behind the front of
+     * the queue, without removing anything
+     */
+    Object get(int i) {
+        if (i < 0 || i >= numItems) {
+            throw new IndexOutOfBoundsException("invalid index: " + i);
+        }
+        if (items == null) {
+            return first;
+        }
+        return items[(front + i) % items.length];
+    }
+
+    /*
+     * toString - converts the queue into a String of the form
+     * {front, one-after-front, two-after-front, ...}
+     */
+    public String toString() {
+        String str = "{";
+
+        for (int i = 0; i < numItems; i++) {
+            if (items == null) {
+                str = str + first;
+            } else {
+                str = str + items[(front + i) % items.length];
+            }
+            if (i < numItems - 1) {
+                str = str + ", ";
+            }
+        }
+
+        str = str + "}";
+        return str;
+    }
+}
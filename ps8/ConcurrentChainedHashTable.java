@@ -0,0 +1,326 @@
+/*
+ * ConcurrentChainedHashTable.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * A class that implements a thread-safe hash table using separate
+ * chaining.
+ *
+ * The table is split into stripes, each with its own lock and its
+ * own array of chains. A key's stripe is chosen from its hash code,
+ * so writers only contend when they touch the same stripe. The nodes
+ * in the chains are never modified once they are published: insert
+ * adds a node to the front of a chain, and remove copies the nodes in
+ * front of the removed one. As a result, search() never takes a lock.
+ * When a stripe gets too full, its writer builds a larger array next
+ * to the old one and then publishes it, so readers keep using the old
+ * array until the new one is ready.
+ *
+ * The heads of the chains are kept in an AtomicReferenceArray. A writer
+ * stores a new head with setRelease() and search() reads it with
+ * getAcquire(), so a reader that sees a new node also sees everything
+ * that was written to it (and to its queue of values) before it was
+ * stored. A plain Node[] would give no such guarantee: a reader could
+ * see a stale chain, or even one that never changes.
+ */
+public class ConcurrentChainedHashTable implements HashTable {
+    /*
+     * Private inner class for an immutable node in a chain
+     */
+    private static class Node {
+        private final Object key;
+        private final int hash;
+        private final SyncQueue values;
+        private final Node next;
+
+        private Node(Object key, int hash, SyncQueue values, Node next) {
+            this.key = key;
+            this.hash = hash;
+            this.values = values;
+            this.next = next;
+        }
+    }
+
+    /*
+     * Private inner class for the collection of values for a key.
+     * It is an LLQueue whose methods are synchronized, so that threads
+     * can add values to a key that other threads are reading.
+     */
+    private static class SyncQueue implements Queue<Object> {
+        private LLQueue<Object> items = new LLQueue<Object>();
+
+        public synchronized boolean insert(Object item) {
+            return items.insert(item);
+        }
+
+        public synchronized Object remove() {
+            return items.remove();
+        }
+
+        public synchronized Object peek() {
+            return items.peek();
+        }
+
+        public synchronized boolean isEmpty() {
+            return items.isEmpty();
+        }
+
+        public boolean isFull() {
+            return false;
+        }
+
+        public synchronized String toString() {
+            return items.toString();
+        }
+    }
+
+    /*
+     * Private inner class for one stripe of the table. Writers
+     * synchronize on the stripe; readers just read the table field.
+     */
+    private static class Stripe {
+        private volatile AtomicReferenceArray<Node> table;
+        private volatile int numKeys;
+
+        private Stripe(int size) {
+            table = new AtomicReferenceArray<Node>(size);
+        }
+    }
+
+    // the load at which a stripe doubles the size of its table
+    private static final double MAX_LOAD = 0.75;
+
+    private Stripe[] stripes;
+    private int stripeShift;    // shift that gives a hash's stripe index
+
+    /*
+     * Constructor for a table with (at least) the specified total size,
+     * split into (at least) the specified number of stripes. Both are
+     * rounded up to powers of two.
+     */
+    public ConcurrentChainedHashTable(int size, int numStripes) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        if (numStripes <= 0) {
+            throw new IllegalArgumentException("numStripes must be positive");
+        }
+
+        numStripes = powerOfTwoAtLeast(numStripes);
+        int stripeSize = powerOfTwoAtLeast(Math.max(1, size / numStripes));
+
+        stripes = new Stripe[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            stripes[i] = new Stripe(stripeSize);
+        }
+        stripeShift = 32 - Integer.numberOfTrailingZeros(numStripes);
+    }
+
+    /*
+     * Constructor for a table with (at least) the specified size and
+     * four stripes for each available processor.
+     */
+    public ConcurrentChainedHashTable(int size) {
+        this(size, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    private static int powerOfTwoAtLeast(int n) {
+        int p = 1;
+        while (p < n && p < (1 << 30)) {
+            p *= 2;
+        }
+        return p;
+    }
+
+    /*
+     * hash - mixes the bits of the key's hash code, so that both the
+     * high bits (which choose the stripe) and the low bits (which
+     * choose the chain within the stripe) depend on all of them
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Stripe stripeFor(int hash) {
+        if (stripes.length == 1) {
+            return stripes[0];
+        }
+        return stripes[hash >>> stripeShift];
+    }
+
+    /*
+     * insert - insert the specified (key, value) pair in the hash table.
+     * Returns true if the pair can be added and false if there is overflow.
+     * Will never have overflow.
+     */
+    public boolean insert(Object key, Object value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+
+        int h = hash(key);
+        Stripe s = stripeFor(h);
+        synchronized (s) {
+            AtomicReferenceArray<Node> table = s.table;
+            int i = h & (table.length() - 1);
+            Node head = table.get(i);
+            for (Node trav = head; trav != null; trav = trav.next) {
+                if (trav.hash == h && trav.key.equals(key)) {
+                    trav.values.insert(value);
+                    return true;
+                }
+            }
+
+            SyncQueue values = new SyncQueue();
+            values.insert(value);
+            table.setRelease(i, new Node(key, h, values, head));
+            s.numKeys++;
+
+            if (s.numKeys > MAX_LOAD * table.length()) {
+                grow(s);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * grow - doubles the size of the table of the specified stripe.
+     * The caller must hold the stripe's lock. The old table is left
+     * untouched, so that readers that are using it aren't affected.
+     * The new table needs only plain writes, because no reader can see
+     * it before the volatile write to s.table publishes it.
+     */
+    private static void grow(Stripe s) {
+        AtomicReferenceArray<Node> oldTable = s.table;
+        int newLength = 2 * oldTable.length();
+        AtomicReferenceArray<Node> newTable = new AtomicReferenceArray<Node>(newLength);
+        int mask = newLength - 1;
+
+        for (int j = 0; j < oldTable.length(); j++) {
+            for (Node trav = oldTable.get(j); trav != null; trav = trav.next) {
+                int i = trav.hash & mask;
+                newTable.setPlain(i, new Node(trav.key, trav.hash, trav.values,
+                                              newTable.getPlain(i)));
+            }
+        }
+
+        s.table = newTable;
+    }
+
+    /*
+     * search - search for the specified key and return the
+     * associated collection of values, or null if the key
+     * is not in the table
+     */
+    public Queue<Object> search(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+
+        int h = hash(key);
+        AtomicReferenceArray<Node> table = stripeFor(h).table;
+        Node head = table.getAcquire(h & (table.length() - 1));
+        for (Node trav = head; trav != null; trav = trav.next) {
+            if (trav.hash == h && trav.key.equals(key)) {
+                return trav.values;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * remove - remove from the table the entry for the specified key
+     * and return the associated collection of values, or null if the key
+     * is not in the table
+     */
+    public Queue<Object> remove(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+
+        int h = hash(key);
+        Stripe s = stripeFor(h);
+        synchronized (s) {
+            AtomicReferenceArray<Node> table = s.table;
+            int i = h & (table.length() - 1);
+            Node head = table.get(i);
+
+            Node toRemove = head;
+            while (toRemove != null && !(toRemove.hash == h && toRemove.key.equals(key))) {
+                toRemove = toRemove.next;
+            }
+            if (toRemove == null) {
+                return null;
+            }
+
+            // copy the nodes in front of the one being removed
+            Node newChain = toRemove.next;
+            for (Node trav = head; trav != toRemove; trav = trav.next) {
+                newChain = new Node(trav.key, trav.hash, trav.values, newChain);
+            }
+            table.setRelease(i, newChain);
+            s.numKeys--;
+
+            return toRemove.values;
+        }
+    }
+
+    /*
+     * getNumKeys - returns the number of keys in the table. If other
+     * threads are inserting or removing keys, the result may be stale.
+     */
+    public int getNumKeys() {
+        int numKeys = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            numKeys += stripes[i].numKeys;
+        }
+        return numKeys;
+    }
+
+    /*
+     * load - returns the number of keys divided by the total size
+     * of the stripes' tables
+     */
+    public double load() {
+        long size = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            size += stripes[i].table.length();
+        }
+        return (double)getNumKeys() / size;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrentChainedHashTable table = new ConcurrentChainedHashTable(4, 2);
+        table.insert("howdy", 15);
+        table.insert("goodbye", 10);
+        table.insert("apple", 5);
+        table.insert("howdy", 25);
+        System.out.println(table.search("howdy"));    // {15, 25}
+        System.out.println(table.remove("apple"));    // {5}
+        System.out.println(table.search("apple"));    // null
+        System.out.println(table.getNumKeys());       // 2
+
+        // four threads inserting disjoint keys at the same time
+        final ConcurrentChainedHashTable shared = new ConcurrentChainedHashTable(16);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int first = t * 100000;
+            threads[t] = new Thread(() -> {
+                for (int i = first; i < first + 100000; i++) {
+                    shared.insert(i, i);
+                }
+            });
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+        }
+        System.out.println(shared.getNumKeys());      // 400000
+        System.out.println(shared.search(123456));    // {123456}
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * CuckooHashTable.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+/*
+ * A class that implements a hash table using bucketized cuckoo hashing.
+ *
+ * There are two tables, each divided into buckets of SLOTS_PER_BUCKET
+ * slots, and each table has its own hash function. A key can only be
+ * in its bucket in the first table, its bucket in the second table,
+ * or a small stash, so search() and remove() usually examine at most
+ * 2 * SLOTS_PER_BUCKET + STASH_SIZE slots, no matter how full the
+ * table is.
+ *
+ * insert() puts a new key in an empty slot of one of its two buckets
+ * if it can. Otherwise, it evicts ("kicks out") a key from one of the
+ * buckets, which is then moved to its bucket in the other table, and
+ * so on. If that goes on for too long (which means that we've probably
+ * hit a cycle), the key that is left over goes in the stash. If the
+ * stash is full, we choose new hash functions (and, if the table is
+ * at least half full, double the size of the tables) and rehash
+ * everything.
+ *
+ * Keys with equal hash codes have the same two buckets whatever hash
+ * functions we choose, so no rehash can place more than
+ * 2 * SLOTS_PER_BUCKET of them. If MAX_REHASH_ATTEMPTS sets of hash
+ * functions all leave too many keys for the stash, the stash simply
+ * grows to hold them, and the number of keys that it may hold before
+ * the next rehash is doubled. Searches for those keys get slower, but
+ * inserts never fail or loop forever.
+ */
+public class CuckooHashTable implements HashTable {
+    /*
+     * Private inner class for an entry in the hash table. As in
+     * OpenHashTable, an entry is also the queue of its key's values.
+     */
+    private static class Entry extends CompactQueue {
+        private Object key;
+
+        private Entry(Object key, Object value) {
+            super(value);
+            this.key = key;
+        }
+    }
+
+    public static final int SLOTS_PER_BUCKET = 4;
+    public static final int STASH_SIZE = 4;
+
+    // the most evictions that one insert will perform
+    private static final int MAX_KICKS = 500;
+
+    // the most buckets in each table
+    private static final int MAX_BUCKETS = 1 << 27;
+
+    // the most sets of hash functions that one rehash will try
+    private static final int MAX_REHASH_ATTEMPTS = 8;
+
+    // the fraction of the slots that can be used before the table grows
+    private static final double MAX_LOAD = 0.9;
+
+    private Entry[][] tables;       // tables[t] holds the buckets of table t
+    private Entry[] stash;          // grows beyond STASH_SIZE only if it must
+    private int numStashed;
+    private int stashLimit;         // stashed entries allowed before a rehash
+    private int numBuckets;         // buckets per table (a power of two)
+    private int[] seeds;            // seeds[t] selects the hash function of table t
+    private int numKeys;
+    private int random;             // state of the generator used for evictions
+    private int numRehashes;
+
+    /*
+     * Constructor for a table with room for (at least) the specified
+     * number of keys
+     */
+    public CuckooHashTable(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+
+        numBuckets = 1;
+        while (2 * numBuckets * SLOTS_PER_BUCKET < size && numBuckets < MAX_BUCKETS) {
+            numBuckets *= 2;
+        }
+        random = 0x2545F491;
+        seeds = new int[2];
+        chooseSeeds();
+        tables = new Entry[2][numBuckets * SLOTS_PER_BUCKET];
+        stash = new Entry[STASH_SIZE];
+        stashLimit = STASH_SIZE;
+    }
+
+    /* nextRandom - a xorshift generator, for seeds and eviction choices */
+    private int nextRandom() {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        return random;
+    }
+
+    private void chooseSeeds() {
+        seeds[0] = nextRandom();
+        seeds[1] = nextRandom();
+    }
+
+    /*
+     * bucket - returns the index of the first slot of the specified
+     * key's bucket in table t
+     */
+    private int bucket(Object key, int t) {
+        int h = MixingHashFunction.mix(key.hashCode() ^ seeds[t]);
+        return (h & (numBuckets - 1)) * SLOTS_PER_BUCKET;
+    }
+
+    /*
+     * find - returns the entry for the specified key, or null if the
+     * key is not in the table
+     */
+    private Entry find(Object key) {
+        for (int t = 0; t < 2; t++) {
+            Entry[] table = tables[t];
+            int b = bucket(key, t);
+            for (int j = b; j < b + SLOTS_PER_BUCKET; j++) {
+                if (table[j] != null && key.equals(table[j].key)) {
+                    return table[j];
+                }
+            }
+        }
+        for (int j = 0; j < numStashed; j++) {
+            if (key.equals(stash[j].key)) {
+                return stash[j];
+            }
+        }
+        return null;
+    }
+
+    /*
+     * insert - insert the specified (key, value) pair in the hash table.
+     * Returns true if the pair can be added and false if there is overflow,
+     * which only happens if the tables have already grown to MAX_BUCKETS
+     * buckets.
+     */
+    public boolean insert(Object key, Object value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+
+        Entry e = find(key);
+        if (e != null) {
+            e.insert(value);
+            return true;
+        }
+
+        if (numKeys + 1 > MAX_LOAD * 2 * numBuckets * SLOTS_PER_BUCKET) {
+            if (numBuckets == MAX_BUCKETS) {
+                return false;
+            }
+            rehash(2 * numBuckets);
+        }
+
+        Entry homeless = place(new Entry(key, value));
+        numKeys++;
+        if (homeless != null) {
+            addToStash(homeless);
+            if (numStashed > stashLimit) {
+                // a table that is mostly empty just needs new hash functions
+                boolean grow = load() >= 0.5 && numBuckets < MAX_BUCKETS;
+                rehash(grow ? 2 * numBuckets : numBuckets);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * place - tries to put the specified entry in the tables, evicting
+     * other entries as needed. Returns null if it succeeds, or the
+     * entry that is left without a slot if it gives up.
+     */
+    private Entry place(Entry e) {
+        if (putInEmptySlot(e, 0) || putInEmptySlot(e, 1)) {
+            return null;
+        }
+
+        int t = nextRandom() & 1;
+        for (int kicks = 0; kicks < MAX_KICKS; kicks++) {
+            // evict a random entry from e's bucket in table t
+            int j = bucket(e.key, t) + ((nextRandom() >>> 1) % SLOTS_PER_BUCKET);
+            Entry evicted = tables[t][j];
+            tables[t][j] = e;
+            e = evicted;
+
+            // the evicted entry's other bucket is in the other table
+            t = 1 - t;
+            if (putInEmptySlot(e, t)) {
+                return null;
+            }
+        }
+        return e;
+    }
+
+    /*
+     * putInEmptySlot - puts the specified entry in an empty slot of its
+     * bucket in table t, if there is one. Returns true if it succeeds.
+     */
+    private boolean putInEmptySlot(Entry e, int t) {
+        Entry[] table = tables[t];
+        int b = bucket(e.key, t);
+        for (int j = b; j < b + SLOTS_PER_BUCKET; j++) {
+            if (table[j] == null) {
+                table[j] = e;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* addToStash - adds the specified entry to the stash, growing it if needed */
+    private void addToStash(Entry e) {
+        if (numStashed == stash.length) {
+            stash = java.util.Arrays.copyOf(stash, 2 * stash.length);
+        }
+        stash[numStashed] = e;
+        numStashed++;
+    }
+
+    /*
+     * rehash - chooses new hash functions and moves all of the entries
+     * into tables with the specified number of buckets. If more than
+     * STASH_SIZE entries end up in the stash, it tries again with other
+     * hash functions, up to MAX_REHASH_ATTEMPTS times; after that, the
+     * extra entries stay in the stash, and the stash is allowed to hold
+     * twice as many before the next rehash.
+     */
+    private void rehash(int newNumBuckets) {
+        Entry[] all = new Entry[numKeys];
+        int n = 0;
+        for (int t = 0; t < 2; t++) {
+            for (int j = 0; j < tables[t].length; j++) {
+                if (tables[t][j] != null) {
+                    all[n++] = tables[t][j];
+                }
+            }
+        }
+        for (int j = 0; j < numStashed; j++) {
+            all[n++] = stash[j];
+        }
+
+        numBuckets = newNumBuckets;
+        for (int attempt = 1; attempt <= MAX_REHASH_ATTEMPTS; attempt++) {
+            chooseSeeds();
+            tables = new Entry[2][numBuckets * SLOTS_PER_BUCKET];
+            stash = new Entry[STASH_SIZE];
+            numStashed = 0;
+            numRehashes++;
+
+            // on the last attempt, keep going however full the stash gets
+            boolean last = (attempt == MAX_REHASH_ATTEMPTS);
+            for (int i = 0; i < n && (last || numStashed <= STASH_SIZE); i++) {
+                Entry homeless = place(all[i]);
+                if (homeless != null) {
+                    addToStash(homeless);
+                }
+            }
+            if (numStashed <= STASH_SIZE) {
+                break;
+            }
+        }
+        stashLimit = Math.max(STASH_SIZE, 2 * numStashed);
+    }
+
+    /*
+     * search - search for the specified key and return the
+     * associated collection of values, or null if the key
+     * is not in the table
+     */
+    public Queue<Object> search(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+        return find(key);
+    }
+
+    /*
+     * remove - remove from the table the entry for the specified key
+     * and return the associated collection of values, or null if the key
+     * is not in the table
+     */
+    public Queue<Object> remove(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+
+        for (int t = 0; t < 2; t++) {
+            Entry[] table = tables[t];
+            int b = bucket(key, t);
+            for (int j = b; j < b + SLOTS_PER_BUCKET; j++) {
+                if (table[j] != null && key.equals(table[j].key)) {
+                    Entry removed = table[j];
+                    table[j] = null;
+                    numKeys--;
+                    return removed;
+                }
+            }
+        }
+        for (int j = 0; j < numStashed; j++) {
+            if (key.equals(stash[j].key)) {
+                Entry removed = stash[j];
+                numStashed--;
+                stash[j] = stash[numStashed];
+                stash[numStashed] = null;
+                numKeys--;
+                return removed;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * getNumKeys - returns the number of keys in the table
+     */
+    public int getNumKeys() {
+        return numKeys;
+    }
+
+    /*
+     * load - returns the fraction of the slots (not counting the stash)
+     * that are in use
+     */
+    public double load() {
+        return (double)numKeys / (2 * numBuckets * SLOTS_PER_BUCKET);
+    }
+
+    /*
+     * getNumRehashes - returns the number of times that new hash
+     * functions have been chosen
+     */
+    public int getNumRehashes() {
+        return numRehashes;
+    }
+
+    public static void main(String[] args) {
+        CuckooHashTable table = new CuckooHashTable(4);
+        table.insert("howdy", 15);
+        table.insert("goodbye", 10);
+        table.insert("apple", 5);
+        table.insert("howdy", 25);
+        System.out.println(table.search("howdy"));    // {15, 25}
+        System.out.println(table.search("pear"));     // null
+        System.out.println(table.remove("apple"));    // {5}
+        System.out.println(table.search("apple"));    // null
+        System.out.println(table.getNumKeys());       // 2
+
+        CuckooHashTable big = new CuckooHashTable(16);
+        for (int i = 0; i < 100000; i++) {
+            big.insert(i * 1000, i);
+        }
+        boolean allFound = true;
+        for (int i = 0; i < 100000; i++) {
+            Queue<Object> vals = big.search(i * 1000);
+            allFound = allFound && vals != null && vals.peek().equals(i);
+        }
+        System.out.println(allFound);                 // true
+        System.out.println(big.getNumKeys());         // 100000
+        System.out.println(big.load() <= 0.9);        // true
+
+        // Strings made of the blocks "Aa" and "BB" all have the same
+        // hash code, so they all have the same two buckets.
+        String[] colliding = { "" };
+        for (int k = 0; k < 10; k++) {
+            String[] longer = new String[2 * colliding.length];
+            for (int j = 0; j < colliding.length; j++) {
+                longer[2 * j] = colliding[j] + "Aa";
+                longer[2 * j + 1] = colliding[j] + "BB";
+            }
+            colliding = longer;
+        }
+        CuckooHashTable same = new CuckooHashTable(16);
+        boolean allInserted = true;
+        for (int i = 0; i < colliding.length; i++) {
+            allInserted = allInserted && same.insert(colliding[i], i);
+        }
+        System.out.println(same.load() >= 0.25);      // true (no runaway growth)
+        for (int i = 0; i < colliding.length; i += 2) {
+            same.remove(colliding[i]);
+        }
+        boolean allCorrect = allInserted;
+        for (int i = 0; i < colliding.length; i++) {
+            Queue<Object> vals = same.search(colliding[i]);
+            if (i % 2 == 0) {
+                allCorrect = allCorrect && vals == null;
+            } else {
+                allCorrect = allCorrect && vals != null && vals.peek().equals(i);
+            }
+        }
+        System.out.println(allCorrect);               // true
+        System.out.println(same.getNumKeys());        // 512
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * HashFunction.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+/*
+ * An interface for the hash functions used by OpenHashTable and
+ * ChainedHashTable.  A hash function also decides which table sizes
+ * it works with, because some of them (like MIXING) need the size
+ * of the table to be a power of two.
+ */
+public interface HashFunction {
+    // hashCode() % size, with the size chosen by the client
+    HashFunction MODULO = new ModuloHashFunction();
+
+    // hashCode() passed through a bit mixer, with power-of-two sizes
+    HashFunction MIXING = new MixingHashFunction();
+
+    /*
+     * tableSize - returns the size that should actually be used for
+     * a table that the client asked to have the specified size
+     */
+    int tableSize(int size);
+
+    /*
+     * growSize - returns the size that should be used when a table
+     * of the specified size needs to get bigger
+     */
+    int growSize(int size);
+
+    /*
+     * h1 - returns the position of the specified key in a table of
+     * the specified size
+     */
+    int h1(Object key, int size);
+
+    /*
+     * h2 - returns the probe increment used by double hashing for the
+     * specified key in a table of the specified size
+     */
+    int h2(Object key, int size);
+}
@@ -24,4 +24,54 @@ public interface HashTable {
      * is not in the table
      */
     Queue<Object> remove(Object key);
+    
+    /*
+     * searchAll - searches for each of the specified keys, putting the
+     * result of search(keys[i]) in results[i], and returns the array of
+     * results. If results is null or shorter than keys, a new array is
+     * used, so a caller that makes many batches of searches can pass
+     * the returned array back in rather than creating a new one each time.
+     */
+    default Queue<Object>[] searchAll(Object[] keys, Queue<Object>[] results) {
+        if (keys == null) {
+            throw new IllegalArgumentException("keys must be non-null");
+        }
+        if (results == null || results.length < keys.length) {
+            results = newResults(keys.length);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            results[i] = search(keys[i]);
+        }
+        return results;
+    }
+    
+    /*
+     * insertAll - inserts the pair (keys[i], values[i]) for every i, in
+     * order. Returns true if all of the pairs can be added, and false
+     * if there is overflow, in which case the remaining pairs are not
+     * inserted.
+     */
+    default boolean insertAll(Object[] keys, Object[] values) {
+        if (keys == null || values == null) {
+            throw new IllegalArgumentException("keys and values must be non-null");
+        }
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("keys and values must have the same length");
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (!insert(keys[i], values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /*
+     * newResults - creates an array that can hold the results of
+     * searchAll() for n keys
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Queue<Object>[] newResults(int n) {
+        return (Queue<Object>[])new Queue[n];
+    }
 }
\ No newline at end of file
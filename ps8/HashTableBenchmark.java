@@ -0,0 +1,567 @@
+/*
+ * HashTableBenchmark.java
+ *
+ * Computer Science 112, Boston University
+ *
+ * Simple timing harness for the hash table classes in this directory.
+ * Run it with the number of operations as an optional argument:
+ *
+ *     java -Xmx4g HashTableBenchmark 10000000
+ */
+
+import java.util.Random;
+
+public class HashTableBenchmark {
+    /*
+     * LatencyHistogram - records per-operation latencies in buckets
+     * whose bounds are powers of two (in nanoseconds), so that we can
+     * estimate percentiles without storing every sample.
+     */
+    private static class LatencyHistogram {
+        private long[] counts = new long[64];
+        private long total;
+        private long max;
+
+        private void record(long nanos) {
+            int bucket = 64 - Long.numberOfLeadingZeros(Math.max(nanos, 1));
+            counts[bucket - 1]++;
+            total++;
+            if (nanos > max) {
+                max = nanos;
+            }
+        }
+
+        /*
+         * percentile - returns an upper bound on the latency of
+         * the specified fraction of the operations
+         */
+        private long percentile(double p) {
+            long target = (long)Math.ceil(p * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return 1L << (i + 1);
+                }
+            }
+            return max;
+        }
+
+        public String toString() {
+            return "p50 <= " + percentile(0.50) + " ns, p99 <= "
+                + percentile(0.99) + " ns, p99.9 <= " + percentile(0.999)
+                + " ns, max = " + max + " ns";
+        }
+    }
+
+    /*
+     * benchGrowthLatency - inserts n Integer keys into a ChainedHashTable
+     * that starts small, and reports the latency of the individual
+     * inserts.  If incremental is false, the caller grows the table by
+     * calling resize() whenever the load exceeds 0.75; otherwise, the
+     * table grows by itself using incremental rehashing.
+     */
+    public static void benchGrowthLatency(int n, boolean incremental) {
+        ChainedHashTable table;
+        if (incremental) {
+            table = new ChainedHashTable(16, 0.75);
+        } else {
+            table = new ChainedHashTable(16);
+        }
+        int size = 16;
+
+        System.gc();    // so earlier runs' garbage isn't charged to this one
+        LatencyHistogram hist = new LatencyHistogram();
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            long t0 = System.nanoTime();
+            table.insert(i, i);
+            if (!incremental && table.getNumKeys() > 0.75 * size) {
+                size *= 2;
+                table.resize(size);
+            }
+            hist.record(System.nanoTime() - t0);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        String mode = incremental ? "incremental" : "resize()   ";
+        System.out.println(mode + ": " + n + " inserts in "
+            + (elapsed / 1000000) + " ms; " + hist);
+    }
+
+    /*
+     * GlobalLockTable - a ChainedHashTable behind one lock, which is how
+     * a ChainedHashTable has to be shared between threads
+     */
+    private static class GlobalLockTable implements HashTable {
+        private ChainedHashTable table;
+
+        private GlobalLockTable(int size) {
+            table = new ChainedHashTable(size, 0.75);
+        }
+
+        public synchronized boolean insert(Object key, Object value) {
+            return table.insert(key, value);
+        }
+
+        public synchronized Queue<Object> search(Object key) {
+            return table.search(key);
+        }
+
+        public synchronized Queue<Object> remove(Object key) {
+            return table.remove(key);
+        }
+    }
+
+    /*
+     * runThreads - has each of numThreads threads perform opsPerThread
+     * operations on the specified table (90% searches, half of which
+     * miss, and 10% inserts of keys in [0, 2*numKeys)) and returns the
+     * total number of operations per second
+     */
+    private static double runThreads(HashTable table, int numKeys,
+                                     int numThreads, int opsPerThread)
+            throws InterruptedException {
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final int seed = t + 1;
+            threads[t] = new Thread(() -> {
+                int x = seed * 0x9E3779B9;
+                for (int i = 0; i < opsPerThread; i++) {
+                    // xorshift, so that threads don't share a Random
+                    x ^= x << 13;
+                    x ^= x >>> 17;
+                    x ^= x << 5;
+                    int key = (x >>> 1) % (2 * numKeys);
+                    if ((x & 0xF) < 14) {
+                        table.search(key);
+                    } else {
+                        table.insert(key, key);
+                    }
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (int t = 0; t < numThreads; t++) {
+            threads[t].start();
+        }
+        for (int t = 0; t < numThreads; t++) {
+            threads[t].join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return (double)numThreads * opsPerThread / elapsed * 1e9;
+    }
+
+    /*
+     * benchConcurrentThroughput - compares a ChainedHashTable behind a
+     * global lock with a ConcurrentChainedHashTable, using 1, 2, 4, ...
+     * threads, up to the number of available processors
+     */
+    public static void benchConcurrentThroughput(int numKeys, int opsPerThread)
+            throws InterruptedException {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int numThreads = 1; ; numThreads = Math.min(2 * numThreads, maxThreads)) {
+            HashTable locked = new GlobalLockTable(16);
+            HashTable striped = new ConcurrentChainedHashTable(16);
+            for (int i = 0; i < numKeys; i++) {
+                locked.insert(i, i);
+                striped.insert(i, i);
+            }
+
+            double lockedRate = runThreads(locked, numKeys, numThreads, opsPerThread);
+            double stripedRate = runThreads(striped, numKeys, numThreads, opsPerThread);
+            System.out.printf("%3d threads: global lock %,12.0f ops/s, "
+                + "striped %,12.0f ops/s%n", numThreads, lockedRate, stripedRate);
+
+            if (numThreads == maxThreads) {
+                break;
+            }
+        }
+    }
+
+    /*
+     * Key sets for benchHashQuality: consecutive Integers, Integers that
+     * are all multiples of 1000, and Strings that share a long suffix.
+     */
+    private static Object[][] qualityKeySets(int n) {
+        Object[] sequential = new Object[n];
+        Object[] strided = new Object[n];
+        Object[] emails = new Object[n];
+        for (int i = 0; i < n; i++) {
+            sequential[i] = i;
+            strided[i] = i * 1000;
+            emails[i] = "user" + i + "@example.com";
+        }
+        return new Object[][] { sequential, strided, emails };
+    }
+
+    /*
+     * chainStats - returns the average and the maximum chain length
+     * seen by a successful search in a chained table of the specified
+     * size that uses h1 from the specified hash function
+     */
+    private static String chainStats(Object[] keys, int size, HashFunction f) {
+        size = f.tableSize(size);
+        int[] chainLength = new int[size];
+        for (int i = 0; i < keys.length; i++) {
+            chainLength[f.h1(keys[i], size)]++;
+        }
+
+        long totalLength = 0;
+        int maxLength = 0;
+        for (int i = 0; i < size; i++) {
+            // each of the keys in the chain sees the whole chain
+            totalLength += (long)chainLength[i] * chainLength[i];
+            maxLength = Math.max(maxLength, chainLength[i]);
+        }
+        return String.format("chain avg %6.2f max %5d",
+            (double)totalLength / keys.length, maxLength);
+    }
+
+    /*
+     * probeStats - returns the average and the maximum number of cells
+     * probed when inserting the keys into a table of the specified size
+     * that uses double hashing with the specified hash function, or
+     * the number of keys that overflowed
+     */
+    private static String probeStats(Object[] keys, int size, HashFunction f) {
+        size = f.tableSize(size);
+        boolean[] used = new boolean[size];
+        long totalProbes = 0;
+        int maxProbes = 0;
+        int overflows = 0;
+        for (int k = 0; k < keys.length; k++) {
+            int i = f.h1(keys[k], size);
+            int h2 = f.h2(keys[k], size);
+            int numChecked = 1;
+            while (used[i] && numChecked < size) {
+                i = (i + h2) % size;
+                numChecked++;
+            }
+            if (used[i]) {
+                overflows++;
+            } else {
+                used[i] = true;
+                totalProbes += numChecked;
+                maxProbes = Math.max(maxProbes, numChecked);
+            }
+        }
+        return String.format("probes avg %6.2f max %6d overflows %d",
+            (double)totalProbes / (keys.length - overflows), maxProbes, overflows);
+    }
+
+    /*
+     * benchHashQuality - compares the chain lengths and double-hashing
+     * probe lengths produced by the MODULO and MIXING hash functions on
+     * several key sets, at a load factor of about 0.5, along with the
+     * time taken by OpenHashTable.search() on each key set
+     */
+    public static void benchHashQuality(int n) {
+        String[] names = { "sequential ints", "ints * 1000", "email strings" };
+        Object[][] keySets = qualityKeySets(n);
+        HashFunction[] functions = { HashFunction.MODULO, HashFunction.MIXING };
+        String[] functionNames = { "MODULO", "MIXING" };
+
+        // a round size (rather than a prime) is typical of client code
+        int size = 2 * n;
+        for (int s = 0; s < keySets.length; s++) {
+            for (int f = 0; f < functions.length; f++) {
+                OpenHashTable table = new OpenHashTable(size,
+                    OpenHashTable.DOUBLE_HASHING, functions[f]);
+                for (int i = 0; i < keySets[s].length; i++) {
+                    table.insert(keySets[s][i], i);
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < keySets[s].length; i++) {
+                    table.search(keySets[s][i]);
+                }
+                long elapsed = System.nanoTime() - start;
+
+                System.out.printf("%-16s %-6s  %s  %s  search %5.0f ns/key%n",
+                    names[s], functionNames[f],
+                    chainStats(keySets[s], size, functions[f]),
+                    probeStats(keySets[s], size, functions[f]),
+                    (double)elapsed / keySets[s].length);
+            }
+        }
+    }
+
+    /*
+     * benchBuildSizes - compares three ways of loading (key, value) pairs
+     * into a ChainedHashTable: insert() in a loop on a table that grows
+     * by itself, insertAll(), and ChainedHashTable.build() with one
+     * thread per available processor, for each of the sizes from 1
+     * million to 50 million keys that is at most maxKeys
+     */
+    public static void benchBuildSizes(int maxKeys) {
+        int[] sizes = { 1000000, 5000000, 10000000, 25000000, 50000000 };
+        for (int j = 0; j < sizes.length && sizes[j] <= maxKeys; j++) {
+            benchBuild(sizes[j]);
+        }
+    }
+
+    /*
+     * benchBuild - makes the comparison of benchBuildSizes for n pairs
+     */
+    public static void benchBuild(int n) {
+        Object[] keys = new Object[n];
+        Object[] values = new Object[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = "key" + i;
+            values[i] = i;
+        }
+        int parallelism = Runtime.getRuntime().availableProcessors();
+
+        System.gc();
+        long start = System.nanoTime();
+        ChainedHashTable looped = new ChainedHashTable(16, 0.75);
+        for (int i = 0; i < n; i++) {
+            looped.insert(keys[i], values[i]);
+        }
+        long loopedNanos = System.nanoTime() - start;
+        looped = null;
+
+        System.gc();
+        start = System.nanoTime();
+        ChainedHashTable bulk = new ChainedHashTable(16, 0.75);
+        bulk.insertAll(keys, values);
+        long bulkNanos = System.nanoTime() - start;
+        bulk = null;
+
+        System.gc();
+        start = System.nanoTime();
+        ChainedHashTable.build(keys, values, parallelism);
+        long buildNanos = System.nanoTime() - start;
+
+        System.out.printf("%,d keys: insert() %d ms, insertAll() %d ms, "
+            + "build() with %d threads %d ms%n", n, loopedNanos / 1000000,
+            bulkNanos / 1000000, parallelism, buildNanos / 1000000);
+    }
+
+    /*
+     * timeOps - performs the specified operation (0 = insert, 1 = search,
+     * 2 = remove) on the specified table for each of the keys, and
+     * returns the average time per operation in nanoseconds. If hist
+     * is non-null, the latency of each operation is recorded in it.
+     */
+    private static double timeOps(HashTable table, Object[] keys, int op,
+                                  LatencyHistogram hist) {
+        long start = System.nanoTime();
+        for (int i = 0; i < keys.length; i++) {
+            long t0 = (hist != null) ? System.nanoTime() : 0;
+            if (op == 0) {
+                table.insert(keys[i], i);
+            } else if (op == 1) {
+                table.search(keys[i]);
+            } else {
+                table.remove(keys[i]);
+            }
+            if (hist != null) {
+                hist.record(System.nanoTime() - t0);
+            }
+        }
+        return (double)(System.nanoTime() - start) / keys.length;
+    }
+
+    /*
+     * benchTables - compares the HashTable implementations on n Integer
+     * keys in a scrambled order: inserts, searches that hit, searches
+     * that miss, and removes, along with the latency distribution of
+     * the searches that hit
+     */
+    public static void benchTables(int n) {
+        Object[] keys = new Object[n];
+        Object[] missing = new Object[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = MixingHashFunction.mix(i) & 0x7FFFFFFE;    // even
+            missing[i] = (MixingHashFunction.mix(i) & 0x7FFFFFFE) + 1;    // odd
+        }
+
+        String[] names = { "OpenHashTable", "ChainedHashTable", "CuckooHashTable" };
+        for (int round = 0; round < 2; round++) {    // the first round is warm-up
+            for (int t = 0; t < names.length; t++) {
+                HashTable table;
+                if (t == 0) {
+                    table = new OpenHashTable(2 * n, OpenHashTable.DOUBLE_HASHING,
+                                              HashFunction.MIXING);
+                } else if (t == 1) {
+                    table = new ChainedHashTable(16, 0.75, HashFunction.MIXING);
+                } else {
+                    table = new CuckooHashTable(16);
+                }
+
+                System.gc();
+                LatencyHistogram hitLatency = new LatencyHistogram();
+                double insertNs = timeOps(table, keys, 0, null);
+                double hitNs = timeOps(table, keys, 1, null);
+                double missNs = timeOps(table, missing, 1, null);
+                timeOps(table, keys, 1, hitLatency);
+                double removeNs = timeOps(table, keys, 2, null);
+
+                if (round == 1) {
+                    System.out.printf("%-17s insert %6.1f  hit %6.1f  miss %6.1f  "
+                        + "remove %6.1f ns/op; hits %s%n", names[t], insertNs,
+                        hitNs, missNs, removeNs, hitLatency);
+                }
+            }
+        }
+    }
+
+    /*
+     * benchStringKeys - compares OpenHashTable with SwissHashTable on n
+     * String keys that share a long prefix, so that each call to
+     * equals() that doesn't match has to compare many characters
+     */
+    public static void benchStringKeys(int n) {
+        Object[] keys = new Object[n];
+        Object[] missing = new Object[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = "customer-record-" + (2 * i);
+            missing[i] = "customer-record-" + (2 * i + 1);
+        }
+
+        String[] names = { "OpenHashTable", "SwissHashTable" };
+        for (int round = 0; round < 2; round++) {    // the first round is warm-up
+            for (int t = 0; t < names.length; t++) {
+                HashTable table;
+                if (t == 0) {
+                    table = new OpenHashTable(2 * n, OpenHashTable.LINEAR,
+                                              HashFunction.MIXING);
+                } else {
+                    table = new SwissHashTable(n);
+                }
+
+                System.gc();
+                double insertNs = timeOps(table, keys, 0, null);
+                double hitNs = timeOps(table, keys, 1, null);
+                double missNs = timeOps(table, missing, 1, null);
+                double removeNs = timeOps(table, keys, 2, null);
+
+                if (round == 1) {
+                    System.out.printf("%-17s insert %6.1f  hit %6.1f  miss %6.1f  "
+                        + "remove %6.1f ns/op%n", names[t], insertNs, hitNs,
+                        missNs, removeNs);
+                }
+            }
+        }
+    }
+
+    /*
+     * benchBatchSearch - compares looking up batches of keys with one
+     * search() per key and with a single searchAll() per batch, for
+     * batches of 64 and 512 random keys from a table of n Integer keys
+     */
+    public static void benchBatchSearch(int n) {
+        Object[] keys = new Object[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = MixingHashFunction.mix(i) & 0x7FFFFFFE;
+        }
+        Object[] lookups = new Object[1 << 20];
+        Random rand = new Random(112);
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = keys[rand.nextInt(n)];
+        }
+
+        HashTable[] tables = {
+            new OpenHashTable(2 * n, OpenHashTable.DOUBLE_HASHING, HashFunction.MIXING),
+            new ChainedHashTable(16, 0.75, HashFunction.MIXING)
+        };
+        String[] names = { "OpenHashTable", "ChainedHashTable" };
+        for (int t = 0; t < tables.length; t++) {
+            tables[t].insertAll(keys, keys);
+        }
+        keys = null;
+
+        int[] batchSizes = { 64, 512 };
+        for (int round = 0; round < 2; round++) {    // the first round is warm-up
+            for (int t = 0; t < tables.length; t++) {
+                for (int b = 0; b < batchSizes.length; b++) {
+                    Object[] batch = new Object[batchSizes[b]];
+                    Queue<Object>[] results = HashTable.newResults(batch.length);
+                    int numBatches = lookups.length / batch.length;
+
+                    // Both ways search for the same keys, in separate passes
+                    // over all of the lookups. A pass touches far more of
+                    // the table than fits in the cache, so neither one
+                    // finds the keys cached by the other.
+                    long looped = 0;
+                    int loopedFound = 0;
+                    for (int k = 0; k < numBatches; k++) {
+                        System.arraycopy(lookups, k * batch.length, batch, 0, batch.length);
+                        long start = System.nanoTime();
+                        for (int i = 0; i < batch.length; i++) {
+                            results[i] = tables[t].search(batch[i]);
+                        }
+                        looped += System.nanoTime() - start;
+                        loopedFound += countFound(results);
+                    }
+
+                    long batched = 0;
+                    int batchedFound = 0;
+                    for (int k = 0; k < numBatches; k++) {
+                        System.arraycopy(lookups, k * batch.length, batch, 0, batch.length);
+                        long start = System.nanoTime();
+                        results = tables[t].searchAll(batch, results);
+                        batched += System.nanoTime() - start;
+                        batchedFound += countFound(results);
+                    }
+
+                    if (round == 1) {
+                        int perKey = numBatches * batch.length;
+                        System.out.printf("%-17s batches of %3d: search() %6.1f  "
+                            + "searchAll() %6.1f ns/key (%d/%d and %d/%d found)%n",
+                            names[t], batch.length, (double)looped / perKey,
+                            (double)batched / perKey, loopedFound, perKey,
+                            batchedFound, perKey);
+                    }
+                }
+            }
+        }
+    }
+
+    /* countFound - the number of non-null results of a batch of searches */
+    private static int countFound(Queue<Object>[] results) {
+        int found = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int n = 10000000;
+        if (args.length > 0) {
+            n = Integer.parseInt(args[0]);
+        }
+
+        System.out.println("== growth latency ==");
+        benchGrowthLatency(n, false);
+        benchGrowthLatency(n, true);
+
+        System.out.println("== concurrent throughput ==");
+        benchConcurrentThroughput(n / 10, n / 10);
+
+        // kept small, because with MODULO, searches for the strided keys
+        // that overflowed have to scan the whole table
+        System.out.println("== hash quality ==");
+        benchHashQuality(Math.min(n / 10, 50000));
+
+        // 50 million keys need about -Xmx16g
+        System.out.println("== bulk build ==");
+        benchBuild(n / 10);    // warm-up
+        benchBuildSizes(5 * n);
+
+        System.out.println("== open vs. chained vs. cuckoo ==");
+        benchTables(n);
+
+        System.out.println("== String keys: open vs. swiss ==");
+        benchStringKeys(n / 4);
+
+        System.out.println("== batched search ==");
+        benchBatchSearch(n);
+    }
+}
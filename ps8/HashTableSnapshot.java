@@ -0,0 +1,511 @@
+/*
+ * HashTableSnapshot.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+
+/*
+ * A read-only hash table that is stored in a file.
+ *
+ * write() saves the contents of an OpenHashTable or ChainedHashTable
+ * whose keys are all Integers or all Strings (and whose values are
+ * Integers, Strings, or null) in a compact binary format. open() maps
+ * such a file into memory, and search() then works directly on the
+ * mapped bytes: opening a snapshot reads only its header (and checks
+ * it against the file's size), and each search reads only the few
+ * pages that it touches, checking each record offset that it reads.
+ * verify() checks all of the slots at once, for callers that would
+ * rather find a corrupt file up front. The queue that
+ * search() returns is a view of the key's record in the file, which
+ * decodes each value only when it is looked at.
+ *
+ * The file has three parts:
+ *
+ *   header:  MAGIC, key type, number of keys, number of slots
+ *   slots:   for each slot, the key's mixed hash code (int) and the
+ *            offset of its record (int), or 0 for an empty slot
+ *   records: for each key, the key (an int, or a length and UTF-8
+ *            bytes), the number of values, and the values, each of
+ *            which is a type tag followed by its data
+ *
+ * The slots are an open-addressing table with linear probing whose size
+ * is a power of two that is at least twice the number of keys. Because
+ * the whole file is mapped as one buffer, it must be smaller than 2 GB.
+ */
+public class HashTableSnapshot implements HashTable {
+    private static final int MAGIC = 0x48545331;    // "HTS1"
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 8;
+
+    // types of keys
+    private static final byte INT_KEYS = 0;
+    private static final byte STRING_KEYS = 1;
+
+    // tags for values
+    private static final byte NULL_VALUE = 0;
+    private static final byte INT_VALUE = 1;
+    private static final byte STRING_VALUE = 2;
+
+    private MappedByteBuffer buf;
+    private byte keyType;
+    private int numKeys;
+    private int numSlots;
+
+    /*
+     * Private inner class for the values of a key, as a read-only view
+     * of its record in the file. remove() only moves the view past the
+     * value at the front; the file itself never changes.
+     */
+    private class Values implements Queue<Object> {
+        private int pos;            // position of the front value's tag
+        private int remaining;      // the number of values left in the view
+
+        private Values(int pos, int count) {
+            this.pos = pos;
+            this.remaining = count;
+        }
+
+        public boolean insert(Object item) {
+            throw new UnsupportedOperationException("snapshots are read-only");
+        }
+
+        public Object remove() {
+            if (remaining == 0) {
+                return null;
+            }
+            Object value = valueAt(pos);
+            pos = skipValue(pos);
+            remaining--;
+            return value;
+        }
+
+        public Object peek() {
+            return (remaining == 0) ? null : valueAt(pos);
+        }
+
+        public boolean isEmpty() {
+            return (remaining == 0);
+        }
+
+        public boolean isFull() {
+            return true;
+        }
+
+        public String toString() {
+            String str = "{";
+            int p = pos;
+            for (int j = 0; j < remaining; j++) {
+                str = str + valueAt(p);
+                p = skipValue(p);
+                if (j < remaining - 1) {
+                    str = str + ", ";
+                }
+            }
+            str = str + "}";
+            return str;
+        }
+    }
+
+    private HashTableSnapshot(MappedByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+            throw new IOException("not a hash table snapshot");
+        }
+        keyType = buf.get(4);
+        numKeys = buf.getInt(8);
+        numSlots = buf.getInt(12);
+        checkHeader();
+    }
+
+    /*
+     * checkHeader - makes sure that the header describes a table whose
+     * slots fit in the file and that has at least one empty slot (so
+     * that a search for a missing key ends). Only the header is read.
+     */
+    private void checkHeader() throws IOException {
+        if (keyType != INT_KEYS && keyType != STRING_KEYS) {
+            throw new IOException("corrupt snapshot: invalid key type");
+        }
+        if (numSlots < 2 || (numSlots & (numSlots - 1)) != 0
+                || numKeys < 0 || numKeys >= numSlots) {
+            throw new IOException("corrupt snapshot: invalid number of keys or slots");
+        }
+        if (dataStart() > buf.capacity()) {
+            throw new IOException("corrupt snapshot: slots extend past the end of the file");
+        }
+    }
+
+    private long dataStart() {
+        return HEADER_SIZE + (long)SLOT_SIZE * numSlots;
+    }
+
+    /* validOffset - could a record start at the specified offset? */
+    private boolean validOffset(int offset) {
+        // the smallest record is an int key and a count of 0 values
+        return offset >= dataStart() && offset <= buf.capacity() - 8;
+    }
+
+    /*
+     * verify - checks every slot: that each record offset is within
+     * the records part of the file, and that the number of slots in
+     * use matches the number of keys. This reads the whole slot array,
+     * so open() leaves it to callers that want it.
+     */
+    public void verify() throws IOException {
+        int used = 0;
+        for (int i = 0; i < numSlots; i++) {
+            int offset = buf.getInt(HEADER_SIZE + SLOT_SIZE * i + 4);
+            if (offset != 0) {
+                if (!validOffset(offset)) {
+                    throw new IOException("corrupt snapshot: record offset "
+                        + offset + " is outside the file");
+                }
+                used++;
+            }
+        }
+        if (used != numKeys) {
+            throw new IOException("corrupt snapshot: wrong number of keys");
+        }
+    }
+
+    /*
+     * open - maps the snapshot in the specified file into memory and
+     * returns a read-only table for it
+     */
+    public static HashTableSnapshot open(String filename) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            // the mapping remains valid after the channel is closed
+            return new HashTableSnapshot(
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /*
+     * write - saves a snapshot of the specified table in the specified file
+     */
+    public static void write(OpenHashTable table, String filename) throws IOException {
+        write(table.entryIterator(), table.getNumKeys(), filename);
+    }
+
+    public static void write(ChainedHashTable table, String filename) throws IOException {
+        write(table.entryIterator(), table.getNumKeys(), filename);
+    }
+
+    /*
+     * write - saves a snapshot of the numKeys (key, values) pairs produced
+     * by the specified iterator in the specified file
+     */
+    private static void write(Iterator<Map.Entry<Object, Queue<Object>>> entries,
+                              int numKeys, String filename) throws IOException {
+        int numSlots = 2;
+        while (numSlots < 2 * numKeys) {
+            numSlots *= 2;
+        }
+        int[] slotHashes = new int[numSlots];
+        int[] slotOffsets = new int[numSlots];
+        long dataStart = HEADER_SIZE + (long)SLOT_SIZE * numSlots;
+        if (dataStart >= Integer.MAX_VALUE) {
+            throw new IOException("snapshot would be larger than 2 GB");
+        }
+        byte keyType = -1;
+
+        // write the records, leaving room for the header and slots
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(filename)))) {
+            for (long i = 0; i < dataStart; i++) {
+                out.write(0);
+            }
+
+            while (entries.hasNext()) {
+                Map.Entry<Object, Queue<Object>> e = entries.next();
+                Object key = e.getKey();
+                byte type = (key instanceof Integer) ? INT_KEYS
+                          : (key instanceof String) ? STRING_KEYS : -1;
+                if (type == -1 || (keyType != -1 && type != keyType)) {
+                    throw new IllegalArgumentException(
+                        "keys must be all Integers or all Strings");
+                }
+                keyType = type;
+
+                // size() stops counting at Integer.MAX_VALUE
+                int offset = out.size();
+                if (offset == Integer.MAX_VALUE) {
+                    throw new IOException("snapshot would be larger than 2 GB");
+                }
+                int hash = MixingHashFunction.mix(key.hashCode());
+                int i = hash & (numSlots - 1);
+                while (slotOffsets[i] != 0) {
+                    i = (i + 1) & (numSlots - 1);
+                }
+                slotHashes[i] = hash;
+                slotOffsets[i] = offset;
+
+                if (keyType == INT_KEYS) {
+                    out.writeInt((Integer)key);
+                } else {
+                    writeString(out, (String)key);
+                }
+                writeValues(out, e.getValue());
+            }
+        }
+
+        // go back and fill in the header and the slots
+        ByteBuffer head = ByteBuffer.allocate((int)dataStart);
+        head.putInt(MAGIC);
+        head.put(keyType == -1 ? INT_KEYS : keyType);
+        head.put(new byte[3]);
+        head.putInt(numKeys);
+        head.putInt(numSlots);
+        for (int i = 0; i < numSlots; i++) {
+            head.putInt(slotHashes[i]);
+            head.putInt(slotOffsets[i]);
+        }
+        head.flip();
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw");
+             FileChannel channel = file.getChannel()) {
+            while (head.hasRemaining()) {
+                channel.write(head, head.position());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /*
+     * writeValues - writes the number of values in the specified queue,
+     * followed by the values. The queues of OpenHashTable and
+     * ChainedHashTable are CompactQueues, which let us read every value
+     * without removing any, so the table isn't changed.
+     */
+    private static void writeValues(DataOutputStream out, Queue<Object> queue)
+            throws IOException {
+        CompactQueue values = (CompactQueue)queue;
+        int count = values.size();
+        out.writeInt(count);
+        for (int j = 0; j < count; j++) {
+            Object value = values.get(j);
+            if (value == null) {
+                out.writeByte(NULL_VALUE);
+            } else if (value instanceof Integer) {
+                out.writeByte(INT_VALUE);
+                out.writeInt((Integer)value);
+            } else if (value instanceof String) {
+                out.writeByte(STRING_VALUE);
+                writeString(out, (String)value);
+            } else {
+                throw new IllegalArgumentException(
+                    "values must be Integers, Strings, or null");
+            }
+        }
+    }
+
+    /*
+     * findRecord - returns the offset of the record for the specified
+     * key, or -1 if the key is not in the snapshot. Throws an
+     * IllegalStateException if it reads a record offset that is outside
+     * the file, or if it finds no empty slot.
+     */
+    private int findRecord(Object key) {
+        byte[] keyBytes = null;
+        if (keyType == INT_KEYS && !(key instanceof Integer)) {
+            return -1;
+        } else if (keyType == STRING_KEYS) {
+            if (!(key instanceof String)) {
+                return -1;
+            }
+            keyBytes = ((String)key).getBytes(StandardCharsets.UTF_8);
+        }
+
+        int hash = MixingHashFunction.mix(key.hashCode());
+        int i = hash & (numSlots - 1);
+        for (int numChecked = 0; numChecked < numSlots; numChecked++) {
+            int slot = HEADER_SIZE + SLOT_SIZE * i;
+            int offset = buf.getInt(slot + 4);
+            if (offset == 0) {
+                return -1;
+            }
+            if (!validOffset(offset)) {
+                throw new IllegalStateException("corrupt snapshot: record offset "
+                    + offset + " is outside the file");
+            }
+            if (buf.getInt(slot) == hash && keyMatches(offset, key, keyBytes)) {
+                return offset;
+            }
+            i = (i + 1) & (numSlots - 1);
+        }
+        throw new IllegalStateException("corrupt snapshot: no empty slot");
+    }
+
+    /*
+     * keyMatches - does the key of the record at the specified offset
+     * equal the specified key (whose UTF-8 bytes are keyBytes if it
+     * is a String)?
+     */
+    private boolean keyMatches(int offset, Object key, byte[] keyBytes) {
+        if (keyType == INT_KEYS) {
+            return buf.getInt(offset) == (Integer)key;
+        }
+        if (buf.getInt(offset) != keyBytes.length) {
+            return false;
+        }
+        for (int j = 0; j < keyBytes.length; j++) {
+            if (buf.get(offset + 4 + j) != keyBytes[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* valueAt - decodes the value whose tag is at the specified position */
+    private Object valueAt(int pos) {
+        byte tag = buf.get(pos);
+        if (tag == NULL_VALUE) {
+            return null;
+        } else if (tag == INT_VALUE) {
+            return buf.getInt(pos + 1);
+        } else {
+            return readString(pos + 1);
+        }
+    }
+
+    /* skipValue - returns the position just after the value at pos */
+    private int skipValue(int pos) {
+        byte tag = buf.get(pos);
+        if (tag == NULL_VALUE) {
+            return pos + 1;
+        } else if (tag == INT_VALUE) {
+            return pos + 5;
+        } else {
+            return pos + 5 + buf.getInt(pos + 1);
+        }
+    }
+
+    private String readString(int offset) {
+        byte[] bytes = new byte[buf.getInt(offset)];
+        for (int j = 0; j < bytes.length; j++) {
+            bytes[j] = buf.get(offset + 4 + j);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * search - search for the specified key and return the
+     * associated collection of values, or null if the key
+     * is not in the table. The queue is a read-only view of the
+     * values in the file: insert() isn't supported, and remove()
+     * just moves the view past the front value.
+     */
+    public Queue<Object> search(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+
+        int pos = findRecord(key);
+        if (pos == -1) {
+            return null;
+        }
+
+        // skip the key
+        pos += (keyType == INT_KEYS) ? 4 : 4 + buf.getInt(pos);
+
+        return new Values(pos + 4, buf.getInt(pos));
+    }
+
+    /*
+     * insert and remove aren't supported, because a snapshot is read-only
+     */
+    public boolean insert(Object key, Object value) {
+        throw new UnsupportedOperationException("snapshots are read-only");
+    }
+
+    public Queue<Object> remove(Object key) {
+        throw new UnsupportedOperationException("snapshots are read-only");
+    }
+
+    /*
+     * getNumKeys - returns the number of keys in the snapshot
+     */
+    public int getNumKeys() {
+        return numKeys;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File file = File.createTempFile("snapshot", ".hts");
+        file.deleteOnExit();
+
+        ChainedHashTable words = new ChainedHashTable(5);
+        words.insert("howdy", 15);
+        words.insert("goodbye", 10);
+        words.insert("apple", 5);
+        words.insert("howdy", "twenty-five");
+        words.insert("caf\u00e9", null);
+        HashTableSnapshot.write(words, file.getPath());
+
+        HashTableSnapshot snap = HashTableSnapshot.open(file.getPath());
+        System.out.println(snap.getNumKeys());        // 4
+        System.out.println(snap.search("howdy"));     // {15, twenty-five}
+        System.out.println(snap.search("caf\u00e9"));      // {null}
+        System.out.println(snap.search("pear"));      // null
+        System.out.println(snap.search(15));          // null
+        System.out.println(words.search("howdy"));    // {15, twenty-five}
+        Queue<Object> view = snap.search("howdy");
+        System.out.println(view.remove());            // 15
+        System.out.println(view);                     // {twenty-five}
+        System.out.println(snap.search("howdy"));     // {15, twenty-five}
+
+        OpenHashTable nums = new OpenHashTable(200003);
+        for (int i = 0; i < 100000; i++) {
+            nums.insert(i * 7, "value " + i);
+        }
+        HashTableSnapshot.write(nums, file.getPath());
+        snap = HashTableSnapshot.open(file.getPath());
+        System.out.println(snap.search(7 * 4321));    // {value 4321}
+        System.out.println(snap.search(8));           // null
+        snap.verify();                                // no exception
+
+        // a slot whose record offset is past the end of the file is
+        // caught by verify(), but not by open()
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long slot = HEADER_SIZE;
+            raf.seek(slot + 4);
+            while (raf.readInt() == 0) {
+                slot += SLOT_SIZE;
+                raf.seek(slot + 4);
+            }
+            raf.seek(slot + 4);
+            raf.writeInt(Integer.MAX_VALUE);
+        }
+        snap = HashTableSnapshot.open(file.getPath());
+        try {
+            snap.verify();
+            System.out.println("verified a corrupt snapshot");
+        } catch (IOException e) {
+            System.out.println(e.getMessage());   // corrupt snapshot: record offset ...
+        }
+
+        // a snapshot whose slots claim more of the file than there is
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(12);
+            raf.writeInt(1 << 30);
+        }
+        try {
+            HashTableSnapshot.open(file.getPath());
+            System.out.println("opened a corrupt snapshot");
+        } catch (IOException e) {
+            System.out.println(e.getMessage());   // corrupt snapshot: slots extend ...
+        }
+    }
+}
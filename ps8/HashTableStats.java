@@ -0,0 +1,200 @@
+/*
+ * HashTableStats.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+/*
+ * A class that collects statistics about the searches and resizes
+ * performed by a hash table. A table only collects statistics after
+ * its enableStats() method has been called.
+ *
+ * For a search, the "probe count" is the number of cells (for open
+ * addressing) or chain nodes (for separate chaining) that were
+ * examined.  To keep the cost low, only one out of every sampleInterval
+ * searches is recorded, and the counters are plain fields, so a
+ * HashTableStats object (like the tables that use it) should only be
+ * used by one thread at a time.
+ */
+public class HashTableStats {
+    // the histograms count probe counts 0..MAX_EXACT exactly,
+    // and lump all larger probe counts into one last bucket
+    public static final int MAX_EXACT = 31;
+
+    private int sampleMask;      // record a search when (count & mask) == 0
+    private int searchCount;     // number of searches seen (mod 2^32)
+
+    private long[] hitHistogram = new long[MAX_EXACT + 2];
+    private long[] missHistogram = new long[MAX_EXACT + 2];
+    private long numHits;
+    private long numMisses;
+    private long hitProbes;      // total probe count of the recorded hits
+    private long missProbes;     // total probe count of the recorded misses
+    private int maxHitProbes;
+    private int maxMissProbes;
+
+    private long numResizes;
+    private long resizeNanos;    // total time spent resizing
+
+    // the state of the table when its getStats() was last called
+    private int numKeys;
+    private int numRemoved;
+    private int tableSize;
+
+    /*
+     * Constructor for an object that records one out of every
+     * sampleInterval searches. sampleInterval is rounded up to a
+     * power of two.
+     */
+    public HashTableStats(int sampleInterval) {
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("sampleInterval must be positive");
+        }
+        int interval = 1;
+        while (interval < sampleInterval && interval < (1 << 30)) {
+            interval *= 2;
+        }
+        sampleMask = interval - 1;
+    }
+
+    /*
+     * sample - called once per search; returns true if the search
+     * should be recorded
+     */
+    boolean sample() {
+        return (searchCount++ & sampleMask) == 0;
+    }
+
+    /*
+     * recordSearch - records a search that examined the specified
+     * number of cells or nodes and did or did not find its key
+     */
+    void recordSearch(boolean found, int probes) {
+        int bucket = Math.min(probes, MAX_EXACT + 1);
+        if (found) {
+            numHits++;
+            hitProbes += probes;
+            hitHistogram[bucket]++;
+            maxHitProbes = Math.max(maxHitProbes, probes);
+        } else {
+            numMisses++;
+            missProbes += probes;
+            missHistogram[bucket]++;
+            maxMissProbes = Math.max(maxMissProbes, probes);
+        }
+    }
+
+    /*
+     * recordResize - records a resize (or rehash) that took the
+     * specified number of nanoseconds
+     */
+    void recordResize(long nanos) {
+        numResizes++;
+        resizeNanos += nanos;
+    }
+
+    /*
+     * recordResizeTime - adds the specified number of nanoseconds to the
+     * time spent resizing, without counting another resize. Used for
+     * the pieces of an incremental resize.
+     */
+    void recordResizeTime(long nanos) {
+        resizeNanos += nanos;
+    }
+
+    /*
+     * setTableState - records the number of keys, the number of removed
+     * entries, and the size of the table
+     */
+    void setTableState(int numKeys, int numRemoved, int tableSize) {
+        this.numKeys = numKeys;
+        this.numRemoved = numRemoved;
+        this.tableSize = tableSize;
+    }
+
+    public long getNumHits() {
+        return numHits;
+    }
+
+    public long getNumMisses() {
+        return numMisses;
+    }
+
+    public double getAvgHitProbes() {
+        return numHits == 0 ? 0 : (double)hitProbes / numHits;
+    }
+
+    public double getAvgMissProbes() {
+        return numMisses == 0 ? 0 : (double)missProbes / numMisses;
+    }
+
+    public int getMaxHitProbes() {
+        return maxHitProbes;
+    }
+
+    public int getMaxMissProbes() {
+        return maxMissProbes;
+    }
+
+    /*
+     * getHitHistogram - returns an array whose element i is the number
+     * of recorded hits with a probe count of i; the last element counts
+     * the hits with a probe count greater than MAX_EXACT
+     */
+    public long[] getHitHistogram() {
+        return hitHistogram.clone();
+    }
+
+    /* getMissHistogram - like getHitHistogram, but for misses */
+    public long[] getMissHistogram() {
+        return missHistogram.clone();
+    }
+
+    public long getNumResizes() {
+        return numResizes;
+    }
+
+    public long getResizeNanos() {
+        return resizeNanos;
+    }
+
+    public int getNumKeys() {
+        return numKeys;
+    }
+
+    public int getNumRemoved() {
+        return numRemoved;
+    }
+
+    public int getTableSize() {
+        return tableSize;
+    }
+
+    /*
+     * histogramString - returns a string of the form {probes: count, ...}
+     * for the non-zero elements of the specified histogram
+     */
+    private static String histogramString(long[] histogram) {
+        String s = "{";
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] != 0) {
+                if (s.length() > 1) {
+                    s += ", ";
+                }
+                s += (i > MAX_EXACT ? ">" + MAX_EXACT : "" + i) + ": " + histogram[i];
+            }
+        }
+        return s + "}";
+    }
+
+    public String toString() {
+        return String.format("keys %d, removed %d, size %d; "
+            + "hits %d (avg %.2f, max %d) %s; "
+            + "misses %d (avg %.2f, max %d) %s; "
+            + "resizes %d (%.3f ms)",
+            numKeys, numRemoved, tableSize,
+            numHits, getAvgHitProbes(), maxHitProbes, histogramString(hitHistogram),
+            numMisses, getAvgMissProbes(), maxMissProbes, histogramString(missHistogram),
+            numResizes, resizeNanos / 1e6);
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * IntHashTable.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+/*
+ * A class that implements a hash table with int keys that employs
+ * open addressing using either linear probing, quadratic probing,
+ * or double hashing.
+ *
+ * Unlike OpenHashTable, there is no Entry object per key. The keys
+ * are stored in an int[], and a parallel byte[] records the state of
+ * each cell: EMPTY, REMOVED, or in use by a key with ONE value or with
+ * MANY values. A key with one value keeps that value directly in a
+ * third parallel array, with no queue; only when a second value is
+ * inserted does the key get a CompactQueue. As a result, every int
+ * value can be used as a key, and a key with a single value needs no
+ * objects of its own.
+ *
+ * search() and remove() must return a queue, so for a key with one
+ * value they return a new queue holding that value, without storing
+ * it in the table; inserting into that queue doesn't change the table.
+ * Code that only needs a key's first value can use peek(), and
+ * contains() tells whether a key is present; neither one allocates.
+ */
+public class IntHashTable implements HashTable {
+    // states of a cell
+    private static final byte EMPTY = 0;
+    private static final byte ONE = 1;        // values[i] is the key's only value
+    private static final byte MANY = 2;       // values[i] is the key's CompactQueue
+    private static final byte REMOVED = 3;
+
+    private int[] keys;               // the keys in the table
+    private byte[] states;            // the state of each cell
+    private Object[] values;          // the value or CompactQueue of values for each key
+    private int probeType = OpenHashTable.LINEAR;    // the type of probing
+    private int numKeys;
+
+    public IntHashTable(int size, int probeType) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        if (probeType < 0 || probeType > OpenHashTable.DOUBLE_HASHING) {
+            throw new IllegalArgumentException("invalid probeType: " + probeType);
+        }
+
+        keys = new int[size];
+        states = new byte[size];
+        values = new Object[size];
+        this.probeType = probeType;
+    }
+
+    /*
+     * Constructor for a hash table of the specified size that uses double hashing
+     */
+    public IntHashTable(int size) {
+        this(size, OpenHashTable.DOUBLE_HASHING);
+    }
+
+    /* first hash function */
+    public int h1(int key) {
+        int h1 = key % keys.length;
+        if (h1 < 0) {
+            h1 += keys.length;
+        }
+        return h1;
+    }
+
+    /* second hash function */
+    public int h2(int key) {
+        int h2 = key % 5;
+        if (h2 < 0) {
+            h2 += 11;
+        }
+        h2 += 5;
+        return h2;
+    }
+
+    /*
+     * probeIncr - returns the amount by which the current index
+     * should be incremented to obtain the next element in the probe
+     * sequence if we have already checked numChecked positions
+     * and h2 is the value of the second hash function
+     */
+    private int probeIncr(int numChecked, int h2) {
+       if (numChecked <= 0) {
+          return 0;
+       } else if (probeType == OpenHashTable.LINEAR) {
+           return 1;
+       } else if (probeType == OpenHashTable.QUADRATIC) {
+           return (2*numChecked - 1);
+       } else {   //  DOUBLE_HASHING:
+           return h2;
+       }
+    }
+
+    /* isLive - is there a key (that hasn't been removed) in cell i? */
+    private boolean isLive(int i) {
+        return states[i] == ONE || states[i] == MANY;
+    }
+
+    /*
+     * queueAt - returns a queue of the values of the key in cell i:
+     * its CompactQueue if it has many values, or else a new queue
+     * holding its only value, which is not stored in the table
+     */
+    private Queue<Object> queueAt(int i) {
+        if (states[i] == ONE) {
+            return new CompactQueue(values[i]);
+        }
+        return (CompactQueue)values[i];
+    }
+
+    /*
+     * probe - attempt to find a slot in the hash table for the specified key.
+     *
+     * If key is currently in the table, it returns the index of the entry.
+     * If key isn't in the table, it returns the index of the first empty cell
+     * in the table.
+     * If overflow occurs, it returns -1.
+     */
+    private int probe(int key) {
+        int i = h1(key);
+        int h2 = h2(key);
+        int numChecked = 1;
+
+        // keep probing until we get an empty position or a match
+        while (states[i] != EMPTY && !(isLive(i) && keys[i] == key)) {
+            if (numChecked == keys.length) {
+                return -1;
+            }
+
+            i = (i + probeIncr(numChecked, h2)) % keys.length;
+            numChecked++;
+        }
+
+        return i;
+    }
+
+    /*
+     * insert - insert the specified (key, value) pair in the hash table.
+     * Returns true if the pair can be added and false if there is overflow.
+     */
+    public boolean insert(int key, Object value) {
+        int i = h1(key);
+        int h2 = h2(key);
+        int numChecked = 1;
+        int firstRemoved = -1;
+
+        while (states[i] != EMPTY && !(isLive(i) && keys[i] == key)) {
+            // record the index of the first removed cell we see
+            if (states[i] == REMOVED && firstRemoved == -1) {
+                firstRemoved = i;
+            }
+
+            if (numChecked == keys.length) {
+                break;
+            }
+
+            i = (i + probeIncr(numChecked, h2)) % keys.length;
+            numChecked++;
+        }
+
+        if (isLive(i) && keys[i] == key) {
+            if (states[i] == ONE) {
+                // a second value: the key now needs a queue
+                values[i] = new CompactQueue(values[i]);
+                states[i] = MANY;
+            }
+            ((CompactQueue)values[i]).insert(value);
+            return true;
+        } else if (firstRemoved != -1) {
+            i = firstRemoved;
+        } else if (states[i] != EMPTY) {
+            return false;
+        }
+
+        keys[i] = key;
+        states[i] = ONE;
+        values[i] = value;
+        numKeys++;
+        return true;
+    }
+
+    /*
+     * search - search for the specified key and return the
+     * associated collection of values, or null if the key
+     * is not in the table
+     */
+    public Queue<Object> search(int key) {
+        int i = probe(key);
+
+        if (i == -1 || states[i] == EMPTY) {
+            return null;
+        } else {
+            return queueAt(i);
+        }
+    }
+
+    /*
+     * contains - returns true if the specified key is in the table
+     */
+    public boolean contains(int key) {
+        int i = probe(key);
+        return i != -1 && states[i] != EMPTY;
+    }
+
+    /*
+     * peek - returns the first value for the specified key, or null if
+     * the key is not in the table (or its first value is null)
+     */
+    public Object peek(int key) {
+        int i = probe(key);
+        if (i == -1 || states[i] == EMPTY) {
+            return null;
+        } else if (states[i] == ONE) {
+            return values[i];
+        } else {
+            return ((CompactQueue)values[i]).peek();
+        }
+    }
+
+    /*
+     * remove - remove from the table the entry for the specified key
+     * and return the associated collection of values, or null if the key
+     * is not in the table
+     */
+    public Queue<Object> remove(int key) {
+        int i = probe(key);
+        if (i == -1 || states[i] == EMPTY) {
+            return null;
+        }
+
+        Queue<Object> removedVals = queueAt(i);
+        states[i] = REMOVED;
+        values[i] = null;
+        numKeys--;
+        return removedVals;
+    }
+
+    /*
+     * getNumKeys - returns the number of keys in the table
+     */
+    public int getNumKeys() {
+        return numKeys;
+    }
+
+    /*
+     * The HashTable methods. These accept only Integer keys, which are
+     * unboxed and passed to the int versions above.
+     */
+    public boolean insert(Object key, Object value) {
+        return insert(intKey(key), value);
+    }
+
+    public Queue<Object> search(Object key) {
+        return search(intKey(key));
+    }
+
+    public Queue<Object> remove(Object key) {
+        return remove(intKey(key));
+    }
+
+    private static int intKey(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+        if (!(key instanceof Integer)) {
+            throw new IllegalArgumentException("key must be an Integer");
+        }
+        return (Integer)key;
+    }
+
+    public static void main(String[] args) {
+        IntHashTable table = new IntHashTable(11);
+        table.insert(5, "five");
+        table.insert(15, "fifteen");
+        table.insert(5, "cinq");
+        table.insert(-7, "minus seven");
+        table.insert(0, "zero");
+        System.out.println(table.search(5));      // {five, cinq}
+        System.out.println(table.search(15));     // {fifteen}
+        System.out.println(table.search(-7));     // {minus seven}
+        System.out.println(table.search(0));      // {zero}
+        System.out.println(table.search(25));     // null
+        System.out.println(table.remove(5));      // {five, cinq}
+        System.out.println(table.search(5));      // null
+        System.out.println(table.search(15));     // {fifteen}
+        table.insert(25, "twenty-five");          // reuses the removed cell
+        System.out.println(table.search(25));     // {twenty-five}
+        System.out.println(table.search((Object)15));    // {fifteen}
+        System.out.println(table.getNumKeys());   // 4
+        table.insert(7, null);                    // a single null value
+        System.out.println(table.search(7));      // {null}
+        System.out.println(table.contains(7));    // true
+        System.out.println(table.peek(15));       // fifteen
+        System.out.println(table.peek(5));        // null
+        table.search(15).insert("quinze");        // a copy: the table is unchanged
+        System.out.println(table.search(15));     // {fifteen}
+        table.insert(15, "quinze");
+        System.out.println(table.search(15));     // {fifteen, quinze}
+
+        IntHashTable full = new IntHashTable(3, OpenHashTable.LINEAR);
+        System.out.println(full.insert(1, "a"));  // true
+        System.out.println(full.insert(2, "b"));  // true
+        System.out.println(full.insert(3, "c"));  // true
+        System.out.println(full.insert(4, "d"));  // false
+    }
+}
@@ -14,6 +14,17 @@ import java.util.*;
  * LinkedTree - a class that represents a binary tree containing data
  * items with integer keys.  If the nodes are inserted using the
  * insert method, the result will be a binary search tree.
+ *
+ * A tree created with LinkedTree(true) is kept balanced: it is an AVL
+ * tree, in which the heights of the two subtrees of every node differ
+ * by at most one. insert() and delete() restore that property by
+ * walking up the parent references from the node that changed and
+ * rotating where needed, so the height of the tree stays O(log n)
+ * even when the keys are inserted in sorted order.
+ *
+ * Every node also records the number of nodes in its subtree, which
+ * lets select() find the k-th smallest key and rank() count the keys
+ * below a given key in time proportional to the height of the tree.
  */
 public class LinkedTree {
     // An inner class for the nodes in the tree
@@ -22,7 +33,9 @@ public class LinkedTree {
         private LLList data;     // list of data values for this key
         private Node left;       // reference to the left child/subtree
         private Node right;      // reference to the right child/subtree
-        private Node parent;     // reference to the parent. NOT YET MAINTAINED!
+        private Node parent;     // reference to the parent
+        private int height;      // height of the subtree (balanced trees only)
+        private int size;        // number of nodes in the subtree
         
         private Node(int key, Object data){
             this.key = key;
@@ -31,94 +44,122 @@ public class LinkedTree {
             this.left = null;
             this.right = null;
             this.parent = null;
+            this.height = 0;
+            this.size = 1;
         }
     }
     
     // the root of the tree as a whole
     private Node root;
     
+    // is the tree kept balanced?
+    private boolean balanced;
+    
     public LinkedTree() {
         root = null;
     }
     
     /*
-     * Prints the keys of the tree in the order given by a preorder traversal.
-     * Invokes the recursive preorderPrintTree method to do the work.
+     * Constructor for a tree that is kept balanced (as an AVL tree)
+     * if balanced is true.
      */
-    public void preorderPrint() {
-        if (root != null) {
-            preorderPrintTree(root);      
-        }
-        System.out.println();
+    public LinkedTree(boolean balanced) {
+        root = null;
+        this.balanced = balanced;
     }
     
+    // the orders in which printTree() can visit the nodes
+    private static final int PREORDER = 0;
+    private static final int INORDER = 1;
+    private static final int POSTORDER = 2;
+    
     /*
-     * Recursively performs a preorder traversal of the tree/subtree
-     * whose root is specified, printing the keys of the visited nodes.
-     * Note that the parameter is *not* necessarily the root of the 
-     * entire tree. 
+     * Prints the keys of the tree in the order given by a preorder traversal.
+     * Invokes the iterative printTree method to do the work.
      */
-    private static void preorderPrintTree(Node root) {
-        System.out.print(root.key + " ");
-        if (root.left != null) {
-            preorderPrintTree(root.left);
-        }
-        if (root.right != null) {
-            preorderPrintTree(root.right);
+    public void preorderPrint() {
+        if (root != null) {
+            printTree(root, PREORDER);
         }
+        System.out.println();
     }
     
     /*
      * Prints the keys of the tree in the order given by a postorder traversal.
-     * Invokes the recursive postorderPrintTree method to do the work.
+     * Invokes the iterative printTree method to do the work.
      */
     public void postorderPrint() {
         if (root != null) {
-            postorderPrintTree(root);      
+            printTree(root, POSTORDER);
         }
         System.out.println();
     }
     
-    /*
-     * Recursively performs a postorder traversal of the tree/subtree
-     * whose root is specified, printing the keys of the visited nodes.
-     * Note that the parameter is *not* necessarily the root of the 
-     * entire tree. 
-     */
-    private static void postorderPrintTree(Node root) {
-        if (root.left != null) {
-            postorderPrintTree(root.left);
-        }
-        if (root.right != null) {
-            postorderPrintTree(root.right);
-        }
-        System.out.print(root.key + " ");
-    }
-    
     /*
      * Prints the keys of the tree in the order given by an inorder traversal.
-     * Invokes the recursive inorderPrintTree method to do the work.
+     * Invokes the iterative printTree method to do the work.
      */
     public void inorderPrint() {
         if (root != null) {
-            inorderPrintTree(root);      
+            printTree(root, INORDER);
         }
         System.out.println();
     }
     
     /*
-     * Recursively performs an inorder traversal of the tree/subtree
-     * whose root is specified, printing the keys of the visited nodes.
-     * Note that the parameter is *not* necessarily the root of the 
-     * entire tree. 
+     * Performs a traversal of the tree/subtree whose root is specified,
+     * printing the keys of the visited nodes in the specified order.
+     * Note that the parameter is *not* necessarily the root of the
+     * entire tree.
+     *
+     * Rather than recursing (which would overflow the stack on a very
+     * tall tree), it moves from node to node using the child and parent
+     * references, remembering the node that it just came from. Coming
+     * from the parent means that we are seeing a node for the first
+     * time; coming from its left child means that its left subtree is
+     * done; and coming from its right child (or having no children left
+     * to visit) means that the whole subtree is done.
      */
-    private static void inorderPrintTree(Node root) {
-        if (root.left != null) {
-            inorderPrintTree(root.left);
-        }
-        System.out.print(root.key + " ");
-        if (root.right != null) {
-            inorderPrintTree(root.right);
+    private static void printTree(Node root, int order) {
+        Node trav = root;
+        Node prev = root.parent;
+        while (true) {
+            Node next;
+            if (prev == trav.parent) {
+                // first visit
+                if (order == PREORDER) {
+                    System.out.print(trav.key + " ");
+                }
+                if (trav.left != null) {
+                    next = trav.left;
+                } else {
+                    if (order == INORDER) {
+                        System.out.print(trav.key + " ");
+                    }
+                    next = (trav.right != null) ? trav.right : trav.parent;
+                }
+            } else if (prev == trav.left) {
+                // back from the left subtree
+                if (order == INORDER) {
+                    System.out.print(trav.key + " ");
+                }
+                next = (trav.right != null) ? trav.right : trav.parent;
+            } else {
+                // back from the right subtree
+                next = trav.parent;
+            }
+            
+            if (next == trav.parent) {
+                // the subtree whose root is trav is done
+                if (order == POSTORDER) {
+                    System.out.print(trav.key + " ");
+                }
+                if (trav == root) {
+                    return;
+                }
+            }
+            prev = trav;
+            trav = next;
         }
     }
     
@@ -177,7 +218,7 @@ public class LinkedTree {
     /*
      * Searches for the specified key in the tree.
      * If it finds it, it returns the list of data items associated with the key.
-     * Invokes the recursive searchTree method to perform the actual search.
+     * Invokes the iterative searchTree method to perform the actual search.
      */
     public LLList search(int key) {
         Node n = searchTree(root, key);
@@ -189,20 +230,21 @@ public class LinkedTree {
     }
     
     /*
-     * Recursively searches for the specified key in the tree/subtree
-     * whose root is specified. Note that the parameter is *not*
-     * necessarily the root of the entire tree.
+     * Searches for the specified key in the tree/subtree whose root is
+     * specified, using a loop so that a tall tree can't overflow the
+     * stack. Note that the parameter is *not* necessarily the root of
+     * the entire tree.
      */
     private static Node searchTree(Node root, int key) {
-        if (root == null) {
-            return null;
-        } else if (key == root.key) {
-            return root;
-        } else if (key < root.key) {
-            return searchTree(root.left, key);
-        } else {
-            return searchTree(root.right, key);
+        Node trav = root;
+        while (trav != null && trav.key != key) {
+            if (key < trav.key) {
+                trav = trav.left;
+            } else {
+                trav = trav.right;
+            }
         }
+        return trav;
     }
     
     /*
@@ -237,6 +279,15 @@ public class LinkedTree {
             parent.right = newNode;
             newNode.parent = parent;
         }
+        
+        // The new node is in the subtree of each of its ancestors.
+        for (Node anc = parent; anc != null; anc = anc.parent) {
+            anc.size++;
+        }
+        
+        if (balanced) {
+            rebalance(parent);
+        }
     }
     
     /*
@@ -300,26 +351,419 @@ public class LinkedTree {
             toDelete.key = replace.key;
             toDelete.data = replace.data;
             
-            // Recursively delete the replacement item's old node.
-            // It has at most one child, so we don't have to
-            // worry about infinite recursion.
-            deleteNode(replace, replaceParent);
+            // Delete the replacement item's old node instead.
+            // It has no left child, so it is handled by the
+            // code below (and we don't need to recurse).
+            toDelete = replace;
+            parent = replaceParent;
+        }
+        
+        // Cases 1 and 2: toDelete has 0 or 1 child
+        Node toDeleteChild;
+        if (toDelete.left != null) {
+            toDeleteChild = toDelete.left;
+        } else {
+            toDeleteChild = toDelete.right;  // null if it has no children
+        }
+        
+        if (toDelete == root) {
+            root = toDeleteChild;
+        } else if (parent.left == toDelete) {
+            parent.left = toDeleteChild;
         } else {
-            // Cases 1 and 2: toDelete has 0 or 1 child
-            Node toDeleteChild;
-            if (toDelete.left != null) {
-                toDeleteChild = toDelete.left;
+            parent.right = toDeleteChild;
+        }
+        if (toDeleteChild != null) {
+            toDeleteChild.parent = parent;
+        }
+        
+        // The deleted node was in the subtree of each of its ancestors.
+        for (Node anc = parent; anc != null; anc = anc.parent) {
+            anc.size--;
+        }
+        
+        if (balanced) {
+            rebalance(parent);
+        }
+    }
+    
+    /* Returns the number of nodes in the subtree whose root is n. */
+    private static int size(Node n) {
+        if (n == null) {
+            return 0;
+        } else {
+            return n.size;
+        }
+    }
+    
+    private static void updateSize(Node n) {
+        n.size = 1 + size(n.left) + size(n.right);
+    }
+    
+    /* Returns the number of keys in the tree. */
+    public int size() {
+        return size(root);
+    }
+    
+    /*
+     * Returns the k-th smallest key in the tree, counting from 0, so that
+     * select(0) is the smallest key and select(size() - 1) is the largest.
+     */
+    public int select(int k) {
+        if (k < 0 || k >= size(root)) {
+            throw new IllegalArgumentException("k must be between 0 and size() - 1");
+        }
+        
+        // k is the position of the key we want within trav's subtree
+        Node trav = root;
+        while (true) {
+            int leftSize = size(trav.left);
+            if (k < leftSize) {
+                trav = trav.left;
+            } else if (k == leftSize) {
+                return trav.key;
+            } else {
+                k -= leftSize + 1;
+                trav = trav.right;
+            }
+        }
+    }
+    
+    /*
+     * Returns the number of keys in the tree that are smaller than key.
+     * If key is in the tree, select(rank(key)) == key.
+     */
+    public int rank(int key) {
+        int count = 0;
+        Node trav = root;
+        while (trav != null) {
+            if (key <= trav.key) {
+                trav = trav.left;
             } else {
-                toDeleteChild = toDelete.right;  // null if it has no children
+                count += size(trav.left) + 1;
+                trav = trav.right;
+            }
+        }
+        return count;
+    }
+    
+    /*
+     * Recomputes the size of every subtree, for a tree whose nodes were
+     * linked together without maintaining their sizes. It visits the
+     * nodes in postorder (so that the children of a node are done before
+     * the node itself), moving along the child and parent references in
+     * the same way as printTree(), so it takes O(n) time and no stack.
+     */
+    public void rebuildSizes() {
+        if (root == null) {
+            return;
+        }
+        
+        Node trav = root;
+        Node prev = null;
+        while (trav != null) {
+            Node next;
+            if (prev == trav.parent) {
+                // first visit: go down the left subtree, if any
+                next = (trav.left != null) ? trav.left
+                     : (trav.right != null) ? trav.right : trav.parent;
+            } else if (prev == trav.left && trav.right != null) {
+                next = trav.right;
+            } else {
+                next = trav.parent;
             }
             
-            if (toDelete == root) {
-                root = toDeleteChild;
-            } else if (toDelete.key < parent.key) {
-                parent.left = toDeleteChild;
+            if (next == trav.parent) {
+                updateSize(trav);    // both subtrees are done
+            }
+            prev = trav;
+            trav = next;
+        }
+    }
+    
+    /* Returns the height of the subtree whose root is n (-1 if n is null). */
+    private static int height(Node n) {
+        if (n == null) {
+            return -1;
+        } else {
+            return n.height;
+        }
+    }
+    
+    private static void updateHeight(Node n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+    }
+    
+    /*
+     * Makes child (which may be null) take the place of the node old
+     * as a child of old's parent (or as the root).
+     */
+    private void replaceChild(Node old, Node child) {
+        Node parent = old.parent;
+        if (parent == null) {
+            root = child;
+        } else if (parent.left == old) {
+            parent.left = child;
+        } else {
+            parent.right = child;
+        }
+        if (child != null) {
+            child.parent = parent;
+        }
+    }
+    
+    /*
+     * Rotates the subtree whose root is n to the left, so that n's right
+     * child takes its place, and returns the new root of the subtree.
+     */
+    private Node rotateLeft(Node n) {
+        Node r = n.right;
+        replaceChild(n, r);
+        n.right = r.left;
+        if (r.left != null) {
+            r.left.parent = n;
+        }
+        r.left = n;
+        n.parent = r;
+        updateHeight(n);
+        updateHeight(r);
+        updateSize(n);
+        updateSize(r);
+        return r;
+    }
+    
+    /*
+     * Rotates the subtree whose root is n to the right, so that n's left
+     * child takes its place, and returns the new root of the subtree.
+     */
+    private Node rotateRight(Node n) {
+        Node l = n.left;
+        replaceChild(n, l);
+        n.left = l.right;
+        if (l.right != null) {
+            l.right.parent = n;
+        }
+        l.right = n;
+        n.parent = l;
+        updateHeight(n);
+        updateHeight(l);
+        updateSize(n);
+        updateSize(l);
+        return l;
+    }
+    
+    /*
+     * Restores the AVL property after an insertion or deletion below
+     * the node n, by updating the heights of n and its ancestors and
+     * rotating any of them whose subtrees differ in height by two.
+     */
+    private void rebalance(Node n) {
+        while (n != null) {
+            updateHeight(n);
+            int balance = height(n.left) - height(n.right);
+            if (balance > 1) {
+                if (height(n.left.left) < height(n.left.right)) {
+                    rotateLeft(n.left);
+                }
+                n = rotateRight(n);
+            } else if (balance < -1) {
+                if (height(n.right.right) < height(n.right.left)) {
+                    rotateRight(n.right);
+                }
+                n = rotateLeft(n);
+            }
+            n = n.parent;
+        }
+    }
+    
+    /*
+     * Returns the height of the tree (-1 if the tree is empty). A level-order
+     * traversal is used for unbalanced trees, which may be very tall.
+     */
+    public int height() {
+        if (balanced || root == null) {
+            return height(root);
+        }
+        
+        LLQueue<NodePlusDepth> q = new LLQueue<NodePlusDepth>();
+        q.insert(new NodePlusDepth(root, 0));
+        int maxDepth = 0;
+        while (!q.isEmpty()) {
+            NodePlusDepth item = q.remove();
+            maxDepth = Math.max(maxDepth, item.depth);
+            if (item.node.left != null) {
+                q.insert(new NodePlusDepth(item.node.left, item.depth + 1));
+            }
+            if (item.node.right != null) {
+                q.insert(new NodePlusDepth(item.node.right, item.depth + 1));
+            }
+        }
+        return maxDepth;
+    }
+    
+    /* Returns the leftmost (smallest) node in the subtree whose root is n. */
+    private static Node leftmost(Node n) {
+        while (n.left != null) {
+            n = n.left;
+        }
+        return n;
+    }
+    
+    /*
+     * Returns the node that comes after n in an inorder traversal, or null
+     * if n is the last node. If n has a right subtree, its successor is
+     * the leftmost node of that subtree; otherwise, we go up until we
+     * come from a left child.
+     */
+    private static Node successor(Node n) {
+        if (n.right != null) {
+            return leftmost(n.right);
+        }
+        Node child = n;
+        Node parent = n.parent;
+        while (parent != null && parent.right == child) {
+            child = parent;
+            parent = parent.parent;
+        }
+        return parent;
+    }
+    
+    /*
+     * Returns the node with the smallest key that is >= key, or null
+     * if there is no such node.
+     */
+    private Node ceilingNode(int key) {
+        Node best = null;
+        Node trav = root;
+        while (trav != null) {
+            if (trav.key == key) {
+                return trav;
+            } else if (trav.key > key) {
+                best = trav;
+                trav = trav.left;
             } else {
-                parent.right = toDeleteChild;
+                trav = trav.right;
+            }
+        }
+        return best;
+    }
+    
+    /*
+     * Returns the node with the largest key that is <= key, or null
+     * if there is no such node.
+     */
+    private Node floorNode(int key) {
+        Node best = null;
+        Node trav = root;
+        while (trav != null) {
+            if (trav.key == key) {
+                return trav;
+            } else if (trav.key < key) {
+                best = trav;
+                trav = trav.right;
+            } else {
+                trav = trav.left;
+            }
+        }
+        return best;
+    }
+    
+    /*
+     * Returns the smallest key in the tree. Throws a
+     * NoSuchElementException if the tree is empty.
+     */
+    public int min() {
+        if (root == null) {
+            throw new NoSuchElementException("the tree is empty");
+        }
+        return leftmost(root).key;
+    }
+    
+    /*
+     * Returns the largest key in the tree. Throws a
+     * NoSuchElementException if the tree is empty.
+     */
+    public int max() {
+        if (root == null) {
+            throw new NoSuchElementException("the tree is empty");
+        }
+        Node trav = root;
+        while (trav.right != null) {
+            trav = trav.right;
+        }
+        return trav.key;
+    }
+    
+    /*
+     * Returns the largest key in the tree that is <= key, or null if
+     * there is no such key.
+     */
+    public Integer floor(int key) {
+        Node n = floorNode(key);
+        if (n == null) {
+            return null;
+        } else {
+            return n.key;
+        }
+    }
+    
+    /*
+     * Returns the smallest key in the tree that is >= key, or null if
+     * there is no such key.
+     */
+    public Integer ceiling(int key) {
+        Node n = ceilingNode(key);
+        if (n == null) {
+            return null;
+        } else {
+            return n.key;
+        }
+    }
+    
+    /* Returns an inorder iterator for this tree. */
+    public LinkedTreeIterator inorderIterator() {
+        return new InorderIterator((root == null) ? null : leftmost(root),
+                                   Integer.MAX_VALUE);
+    }
+    
+    /*
+     * Returns an iterator over the keys k in the tree with lo <= k <= hi,
+     * in increasing order.
+     */
+    public LinkedTreeIterator range(int lo, int hi) {
+        return new InorderIterator(ceilingNode(lo), hi);
+    }
+    
+    /*
+     * inner class for an inorder iterator, which moves from each node
+     * to its successor using the parent fields. Each step takes O(1)
+     * time on average over a whole traversal (every edge of the tree is
+     * followed at most twice) and doesn't create any objects.
+     */
+    private class InorderIterator implements LinkedTreeIterator {
+        private Node nextNode;
+        private int hi;         // the largest key to return
+        
+        private InorderIterator(Node first, int hi) {
+            this.hi = hi;
+            nextNode = (first != null && first.key <= hi) ? first : null;
+        }
+        
+        public boolean hasNext() {
+            return (nextNode != null);
+        }
+        
+        public int next() {
+            if (nextNode == null) {
+                throw new NoSuchElementException();
             }
+            
+            int key = nextNode.key;
+            nextNode = successor(nextNode);
+            if (nextNode != null && nextNode.key > hi) {
+                nextNode = null;
+            }
+            return key;
         }
     }
     
@@ -329,10 +773,8 @@ public class LinkedTree {
     }
     
     /* 
-     * inner class for a preorder iterator 
-     * IMPORTANT: You will not be able to actually use objects from this class
-     * to perform a preorder iteration until you have modified the LinkedTree
-     * methods so that they maintain the parent fields in the Nodes.
+     * inner class for a preorder iterator. It climbs back up the tree
+     * using the parent fields, which insert() and delete() maintain.
      */
     private class PreorderIterator implements LinkedTreeIterator {
         private Node nextNode;
@@ -382,7 +824,7 @@ public class LinkedTree {
         }
     }   
 
-    /* Returns a preorder iterator for this tree. */
+    /* Returns a postorder iterator for this tree. */
     public LinkedTreeIterator postorderIterator() {
         return new PostorderIterator();
     }
@@ -396,7 +838,8 @@ public class LinkedTree {
         private PostorderIterator() {
             // traversal starts with leftmost node
             nextNode = root;
-            while (nextNode.left != null || nextNode.right != null) {
+            while (nextNode != null &&
+                   (nextNode.left != null || nextNode.right != null)) {
                 if (nextNode.left != null) {
                     nextNode = nextNode.left;
                 } else if (nextNode.right != null) {
@@ -426,11 +869,13 @@ public class LinkedTree {
                     nextNode = nextNode.parent;
                 // right subtree has more nodes
                 } else if (nextNode.parent.right != null) {
+                    // the first node of the right subtree in postorder
+                    // is found by going left whenever we can
                     while (rightTree.left != null || rightTree.right != null) {
-                        if (rightTree.right != null) {
-                            rightTree = rightTree.right;
-                        } else if (rightTree.left != null) {
+                        if (rightTree.left != null) {
                             rightTree = rightTree.left;
+                        } else if (rightTree.right != null) {
+                            rightTree = rightTree.right;
                         }
                     }
                     nextNode = rightTree;
@@ -464,5 +909,116 @@ public class LinkedTree {
             int key = iter2.next();
             System.out.println(key);
         }
+
+        System.out.println();
+
+        LinkedTree avl = new LinkedTree(true);
+        for (int i = 1; i <= 7; i++) {
+            avl.insert(i, "data for key " + i);
+        }
+        avl.levelOrderPrint();                  // 4 / 2 6 / 1 3 5 7
+        avl.delete(1);
+        avl.delete(2);
+        avl.delete(3);
+        avl.levelOrderPrint();                  // 6 / 4 7 / 5
+        System.out.println(avl.search(5));      // {data for key 5}
+
+        LinkedTree sorted = new LinkedTree(true);
+        for (int i = 0; i < 1000000; i++) {
+            sorted.insert(i, i);
+        }
+        System.out.println(sorted.height());    // 19
+        for (int i = 0; i < 1000000; i += 2) {
+            sorted.delete(i);
+        }
+        System.out.println(sorted.height() <= 1.44 * Math.log(500000) / Math.log(2));    // true
+        System.out.println(sorted.search(999999) != null && sorted.search(0) == null);   // true
+
+        System.out.println();
+
+        fun1.preorderPrint();     // 26 12 4 7 18 32 30 38 36
+        fun1.inorderPrint();      // 4 7 12 18 26 30 32 36 38
+        fun1.postorderPrint();    // 7 4 18 12 30 36 38 32 26
+        System.out.println(new LinkedTree().postorderIterator().hasNext());    // false
+
+        // A tree that is one long chain of right children, which is the
+        // shape that inserting sorted keys would give (but building it
+        // directly avoids the quadratic time of doing that). Run with
+        // -Xmx2g or more for the default of 10 million nodes.
+        int n = (args.length > 0) ? Integer.parseInt(args[0]) : 10000000;
+        LinkedTree skewed = new LinkedTree();
+        skewed.root = skewed.new Node(0, null);
+        Node last = skewed.root;
+        for (int i = 1; i < n; i++) {
+            Node newNode = skewed.new Node(i, null);
+            newNode.parent = last;
+            last.right = newNode;
+            last = newNode;
+        }
+        skewed.rebuildSizes();    // the sizes weren't set while linking the nodes
+        System.out.println(skewed.size() == n && skewed.select(n - 1) == n - 1);    // true
+
+        // print the traversals to a stream that just counts the bytes
+        java.io.PrintStream out = System.out;
+        long[] numBytes = new long[1];
+        System.setOut(new java.io.PrintStream(new java.io.OutputStream() {
+            public void write(int b) {
+                numBytes[0]++;
+            }
+        }));
+        skewed.preorderPrint();
+        skewed.inorderPrint();
+        skewed.postorderPrint();
+        System.setOut(out);
+        System.out.println(numBytes[0] > 3L * n);                  // true
+
+        int count = 0;
+        LinkedTreeIterator skewedIter = skewed.postorderIterator();
+        while (skewedIter.hasNext()) {
+            skewedIter.next();
+            count++;
+        }
+        System.out.println(count == n);                            // true
+        System.out.println(skewed.search(n - 1) != null);           // true
+        System.out.println(skewed.delete(n / 2) != null);           // true
+        System.out.println(skewed.search(n / 2));                   // null
+        System.out.println(skewed.height() == n - 2);               // true
+        skewed = null;
+
+        System.out.println();
+
+        // fun1 has keys 4 7 12 18 26 30 32 36 38
+        System.out.println(fun1.min() + " " + fun1.max());          // 4 38
+        System.out.println(fun1.floor(29) + " " + fun1.ceiling(29));    // 26 30
+        System.out.println(fun1.floor(3) + " " + fun1.ceiling(39));     // null null
+        System.out.println(fun1.floor(18) + " " + fun1.ceiling(18));    // 18 18
+        LinkedTreeIterator window = fun1.range(10, 32);
+        while (window.hasNext()) {
+            System.out.print(window.next() + " ");    // 12 18 26 30 32
+        }
+        System.out.println();
+        LinkedTreeIterator inorder = fun1.inorderIterator();
+        while (inorder.hasNext()) {
+            System.out.print(inorder.next() + " ");   // 4 7 12 18 26 30 32 36 38
+        }
+        System.out.println();
+        System.out.println(fun1.range(19, 25).hasNext());    // false
+
+        System.out.println();
+
+        System.out.println(fun1.size());                     // 9
+        System.out.println(fun1.select(0) + " " + fun1.select(4) + " "
+            + fun1.select(8));                               // 4 26 38
+        System.out.println(fun1.rank(26) + " " + fun1.rank(27) + " "
+            + fun1.rank(100));                               // 4 5 9
+        fun1.delete(12);
+        System.out.println(fun1.select(2) + " " + fun1.rank(26));    // 18 3
+
+        // the 90th percentile of 1..1000 in a balanced tree
+        LinkedTree latencies = new LinkedTree(true);
+        for (int i = 1000; i >= 1; i--) {
+            latencies.insert(i, null);
+        }
+        System.out.println(latencies.select(latencies.size() * 9 / 10));    // 901
     }
 }
@@ -0,0 +1,53 @@
+/*
+ * MixingHashFunction.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+/*
+ * Hash functions that pass the key's hash code through the finalizer
+ * of the MurmurHash3 algorithm, so that every bit of the hash code
+ * affects every bit of the result. Because the bits are well mixed,
+ * we can use tables whose sizes are powers of two and find a position
+ * with a bit mask rather than the (slower) % operator.
+ *
+ * h1 uses the low bits of the mixed hash and h2 the high bits. h2 is
+ * always odd, so it has no factor in common with the table size, and
+ * double hashing visits every position before repeating itself.
+ */
+public class MixingHashFunction implements HashFunction {
+    /*
+     * mix - the MurmurHash3 32-bit finalizer
+     */
+    public static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    public int tableSize(int size) {
+        if (size > (1 << 30)) {
+            throw new IllegalArgumentException("size is too large: " + size);
+        }
+        int tableSize = 1;
+        while (tableSize < size) {
+            tableSize *= 2;
+        }
+        return tableSize;
+    }
+
+    public int growSize(int size) {
+        return 2 * size;
+    }
+
+    public int h1(Object key, int size) {
+        return mix(key.hashCode()) & (size - 1);
+    }
+
+    public int h2(Object key, int size) {
+        return ((mix(key.hashCode()) >>> 16) | 1) & (size - 1);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * ModuloHashFunction.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+/*
+ * The original hash functions of the ps8 hash tables: h1 is the
+ * key's hash code modulo the size of the table, and h2 is a value
+ * from 5 to 15 that is also based on the hash code.
+ *
+ * These work best with prime table sizes. Keys whose hash codes
+ * share a common factor with the size (like consecutive Integers in
+ * a table whose size is a power of ten) tend to collide, and because
+ * h2 has so few possible values, double hashing doesn't do much to
+ * spread them out.
+ */
+public class ModuloHashFunction implements HashFunction {
+    public int tableSize(int size) {
+        return size;
+    }
+
+    public int growSize(int size) {
+        return 2 * size + 1;
+    }
+
+    public int h1(Object key, int size) {
+        int h1 = key.hashCode() % size;
+        if (h1 < 0) {
+            h1 += size;
+        }
+        return h1;
+    }
+
+    public int h2(Object key, int size) {
+        int h2 = key.hashCode() % 5;
+        if (h2 < 0) {
+            h2 += 11;
+        }
+        h2 += 5;
+        return h2;
+    }
+}
@@ -0,0 +1,546 @@
+/*
+ * OffHeapHashTable.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/*
+ * A hash table whose keys and values are stored outside of the Java
+ * heap, for tables with so many keys that the objects of the other
+ * tables (a String, an entry, and a queue per key) would take up most
+ * of the heap and make garbage collection slow.
+ *
+ * The keys are Strings or byte arrays. A String key is stored as its
+ * UTF-8 bytes, so a String and its UTF-8 bytes are the same key. As
+ * in HashTableSnapshot, the values must be Integers, Strings, or null.
+ *
+ * Everything is kept in direct ByteBuffers, which the garbage collector
+ * never scans:
+ *
+ *   arena: chunks of up to CHUNK_SIZE bytes that hold the records.
+ *          A key's record holds its hash code, its bytes, and the
+ *          number of values, along with the addresses of the first
+ *          and last of its value nodes, which form a linked list.
+ *          An address is the chunk number times CHUNK_SIZE plus the
+ *          position in the chunk.
+ *
+ *   slots: an open-addressing table with linear probing. Each slot is
+ *          a long that holds the address of a record in its low 40 bits
+ *          and 24 bits of the key's hash code in its high bits, so
+ *          that most slots for other keys can be skipped without
+ *          looking at their records.
+ *
+ * Records are only ever added to the end of the arena. A removed key's
+ * record (and values) become garbage, and once more than half of the
+ * arena is garbage, the live records are copied into a new arena.
+ */
+public class OffHeapHashTable implements HashTable {
+    private static final int CHUNK_BITS = 26;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;     // 64 MB
+    private static final int FIRST_CHUNK_SIZE = 1 << 16;
+    private static final long ADDRESS_MASK = (1L << 40) - 1;
+    private static final int MAX_SLOTS = 1 << 27;   // a 1 GB slot buffer
+
+    // special slot values; no record has address 0 or 1
+    private static final long EMPTY = 0;
+    private static final long REMOVED = 1;
+
+    // layout of a record
+    private static final int HASH = 0;
+    private static final int KEY_LENGTH = 4;
+    private static final int COUNT = 8;
+    private static final int HEAD = 12;
+    private static final int TAIL = 20;
+    private static final int KEY = 28;
+
+    // layout of a value node: the address of the next node, then a
+    // tag, then the value (an int, or a length and UTF-8 bytes)
+    private static final int NEXT = 0;
+    private static final int TAG = 8;
+    private static final int VALUE = 9;
+
+    // tags for values
+    private static final byte NULL_VALUE = 0;
+    private static final byte INT_VALUE = 1;
+    private static final byte STRING_VALUE = 2;
+
+    private ByteBuffer slots;
+    private int numSlots;           // a power of two
+    private int numKeys;
+    private int numRemoved;         // slots that are REMOVED
+
+    private ArrayList<ByteBuffer> chunks;
+    private int top;                // the next free position in the last chunk
+    private long usedBytes;         // bytes of records and value nodes
+    private long garbageBytes;      // bytes that belong to removed keys
+
+    /*
+     * Constructor for a table with room for (at least) the specified
+     * number of keys before its slots need to grow
+     */
+    public OffHeapHashTable(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        int n = 8;
+        while (n < MAX_SLOTS && n * 3L / 4 < size) {
+            n *= 2;
+        }
+        allocateSlots(n);
+        chunks = new ArrayList<ByteBuffer>();
+        addChunk(0);
+    }
+
+    private void allocateSlots(int n) {
+        numSlots = n;
+        slots = ByteBuffer.allocateDirect(8 * n).order(ByteOrder.nativeOrder());
+        numRemoved = 0;
+    }
+
+    /*
+     * addChunk - starts a new arena chunk that can hold at least the
+     * specified number of bytes. Each chunk is twice as large as the
+     * one before it, up to CHUNK_SIZE.
+     */
+    private void addChunk(int needed) {
+        int size = FIRST_CHUNK_SIZE;
+        if (!chunks.isEmpty()) {
+            size = (int)Math.min(2L * chunks.get(chunks.size() - 1).capacity(), CHUNK_SIZE);
+        }
+        while (size < needed) {
+            size *= 2;
+        }
+        if (chunks.size() == 1 << (40 - CHUNK_BITS)) {
+            throw new IllegalStateException("arena is full");
+        }
+        chunks.add(ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder()));
+
+        // skip the start of the first chunk, so that no record has
+        // address EMPTY or REMOVED
+        top = (chunks.size() == 1) ? 8 : 0;
+    }
+
+    /*
+     * allocate - reserves the specified number of bytes in the arena
+     * and returns their address
+     */
+    private long allocate(int numBytes) {
+        if (numBytes > CHUNK_SIZE - 8) {
+            throw new IllegalArgumentException("key or value is too large");
+        }
+        if (top + numBytes > chunks.get(chunks.size() - 1).capacity()) {
+            addChunk(numBytes);
+        }
+        long address = ((long)(chunks.size() - 1) << CHUNK_BITS) | top;
+        top += numBytes;
+        usedBytes += numBytes;
+        return address;
+    }
+
+    private ByteBuffer chunk(long address) {
+        return chunks.get((int)(address >>> CHUNK_BITS));
+    }
+
+    private static int pos(long address) {
+        return (int)address & (CHUNK_SIZE - 1);
+    }
+
+    /*
+     * keyBytes - returns the bytes of the specified key, which must be
+     * a String or a byte array
+     */
+    private static byte[] keyBytes(Object key) {
+        if (key instanceof String) {
+            return ((String)key).getBytes(StandardCharsets.UTF_8);
+        } else if (key instanceof byte[]) {
+            return (byte[])key;
+        } else if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+        throw new IllegalArgumentException("key must be a String or a byte[]");
+    }
+
+    /* hash - a hash code computed from the bytes of a key */
+    private static int hash(byte[] bytes) {
+        int h = 0;
+        for (int j = 0; j < bytes.length; j++) {
+            h = 31 * h + bytes[j];
+        }
+        return MixingHashFunction.mix(h);
+    }
+
+    private static long slotValue(int hash, long address) {
+        return ((long)(hash >>> 8) << 40) | address;
+    }
+
+    private long getSlot(int i) {
+        return slots.getLong(8 * i);
+    }
+
+    private void setSlot(int i, long value) {
+        slots.putLong(8 * i, value);
+    }
+
+    /*
+     * find - returns the index of the slot for the key with the
+     * specified bytes and hash code, or -1 if the key is not in the table
+     */
+    private int find(byte[] bytes, int hash) {
+        long fingerprint = (long)(hash >>> 8) << 40;
+        int i = hash & (numSlots - 1);
+        while (true) {
+            long s = getSlot(i);
+            if (s == EMPTY) {
+                return -1;
+            }
+            if (s != REMOVED && (s & ~ADDRESS_MASK) == fingerprint
+                    && keyMatches(s & ADDRESS_MASK, bytes, hash)) {
+                return i;
+            }
+            i = (i + 1) & (numSlots - 1);
+        }
+    }
+
+    /*
+     * keyMatches - does the record at the specified address have the
+     * specified key?
+     */
+    private boolean keyMatches(long address, byte[] bytes, int hash) {
+        ByteBuffer c = chunk(address);
+        int p = pos(address);
+        if (c.getInt(p + HASH) != hash || c.getInt(p + KEY_LENGTH) != bytes.length) {
+            return false;
+        }
+        for (int j = 0; j < bytes.length; j++) {
+            if (c.get(p + KEY + j) != bytes[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * insert - insert the specified (key, value) pair in the hash table.
+     * Returns true if the pair can be added and false if there is overflow,
+     * which only happens once the slots can't grow any more (at about
+     * 100 million keys).
+     */
+    public boolean insert(Object key, Object value) {
+        byte[] bytes = keyBytes(key);
+        byte[] valueBytes = valueBytes(value);
+        int hash = hash(bytes);
+
+        int i = find(bytes, hash);
+        if (i != -1) {
+            addValue(getSlot(i) & ADDRESS_MASK, value, valueBytes);
+            return true;
+        }
+
+        if (numKeys + numRemoved + 1 > numSlots * 3L / 4) {
+            if (numKeys + 1 > numSlots * 3L / 8 && numSlots < MAX_SLOTS) {
+                rehash(2 * numSlots);
+            } else if (numKeys + 1 > numSlots * 3L / 4) {
+                return false;
+            } else {
+                rehash(numSlots);    // just clear out the removed slots
+            }
+        }
+
+        long record = allocate(KEY + bytes.length);
+        ByteBuffer c = chunk(record);
+        int p = pos(record);
+        c.putInt(p + HASH, hash);
+        c.putInt(p + KEY_LENGTH, bytes.length);
+        c.putInt(p + COUNT, 0);
+        c.putLong(p + HEAD, 0);
+        c.putLong(p + TAIL, 0);
+        for (int j = 0; j < bytes.length; j++) {
+            c.put(p + KEY + j, bytes[j]);
+        }
+        addValue(record, value, valueBytes);
+
+        putInFreeSlot(slotValue(hash, record), hash);
+        numKeys++;
+        return true;
+    }
+
+    /*
+     * valueBytes - checks that the specified value can be stored, and
+     * returns its UTF-8 bytes if it is a String
+     */
+    private static byte[] valueBytes(Object value) {
+        if (value == null || value instanceof Integer) {
+            return null;
+        } else if (value instanceof String) {
+            return ((String)value).getBytes(StandardCharsets.UTF_8);
+        }
+        throw new IllegalArgumentException("values must be Integers, Strings, or null");
+    }
+
+    /*
+     * addValue - adds a value node at the end of the list of values
+     * of the record at the specified address
+     */
+    private void addValue(long record, Object value, byte[] valueBytes) {
+        int size = VALUE;
+        if (value instanceof Integer) {
+            size += 4;
+        } else if (value != null) {
+            size += 4 + valueBytes.length;
+        }
+
+        long node = allocate(size);
+        ByteBuffer c = chunk(node);
+        int p = pos(node);
+        c.putLong(p + NEXT, 0);
+        if (value == null) {
+            c.put(p + TAG, NULL_VALUE);
+        } else if (value instanceof Integer) {
+            c.put(p + TAG, INT_VALUE);
+            c.putInt(p + VALUE, (Integer)value);
+        } else {
+            c.put(p + TAG, STRING_VALUE);
+            c.putInt(p + VALUE, valueBytes.length);
+            for (int j = 0; j < valueBytes.length; j++) {
+                c.put(p + VALUE + 4 + j, valueBytes[j]);
+            }
+        }
+
+        // the record may be in a different chunk than the node
+        c = chunk(record);
+        p = pos(record);
+        long tail = c.getLong(p + TAIL);
+        if (tail == 0) {
+            c.putLong(p + HEAD, node);
+        } else {
+            chunk(tail).putLong(pos(tail) + NEXT, node);
+        }
+        c.putLong(p + TAIL, node);
+        c.putInt(p + COUNT, c.getInt(p + COUNT) + 1);
+    }
+
+    /*
+     * putInFreeSlot - puts the specified slot value in the first empty
+     * or removed slot for the specified hash code
+     */
+    private void putInFreeSlot(long value, int hash) {
+        int i = hash & (numSlots - 1);
+        while (getSlot(i) != EMPTY && getSlot(i) != REMOVED) {
+            i = (i + 1) & (numSlots - 1);
+        }
+        if (getSlot(i) == REMOVED) {
+            numRemoved--;
+        }
+        setSlot(i, value);
+    }
+
+    /*
+     * rehash - moves the slots for all of the keys into a new slot
+     * buffer with the specified number of slots. The records stay
+     * where they are.
+     */
+    private void rehash(int newNumSlots) {
+        ByteBuffer oldSlots = slots;
+        int oldNumSlots = numSlots;
+        allocateSlots(newNumSlots);
+        for (int i = 0; i < oldNumSlots; i++) {
+            long s = oldSlots.getLong(8 * i);
+            if (s != EMPTY && s != REMOVED) {
+                long record = s & ADDRESS_MASK;
+                putInFreeSlot(s, chunk(record).getInt(pos(record) + HASH));
+            }
+        }
+    }
+
+    /*
+     * readValues - returns a new queue that holds the values of the
+     * record at the specified address
+     */
+    private Queue<Object> readValues(long record) {
+        CompactQueue values = new CompactQueue();
+        long node = chunk(record).getLong(pos(record) + HEAD);
+        while (node != 0) {
+            ByteBuffer c = chunk(node);
+            int p = pos(node);
+            byte tag = c.get(p + TAG);
+            if (tag == NULL_VALUE) {
+                values.insert(null);
+            } else if (tag == INT_VALUE) {
+                values.insert(c.getInt(p + VALUE));
+            } else {
+                byte[] bytes = new byte[c.getInt(p + VALUE)];
+                for (int j = 0; j < bytes.length; j++) {
+                    bytes[j] = c.get(p + VALUE + 4 + j);
+                }
+                values.insert(new String(bytes, StandardCharsets.UTF_8));
+            }
+            node = c.getLong(p + NEXT);
+        }
+        return values;
+    }
+
+    /*
+     * recordBytes - returns the number of arena bytes used by the
+     * record at the specified address and its value nodes
+     */
+    private long recordBytes(long record) {
+        ByteBuffer c = chunk(record);
+        long total = KEY + c.getInt(pos(record) + KEY_LENGTH);
+        long node = c.getLong(pos(record) + HEAD);
+        while (node != 0) {
+            ByteBuffer nc = chunk(node);
+            int p = pos(node);
+            total += VALUE;
+            byte tag = nc.get(p + TAG);
+            if (tag == INT_VALUE) {
+                total += 4;
+            } else if (tag == STRING_VALUE) {
+                total += 4 + nc.getInt(p + VALUE);
+            }
+            node = nc.getLong(p + NEXT);
+        }
+        return total;
+    }
+
+    /*
+     * search - search for the specified key and return the
+     * associated collection of values, or null if the key
+     * is not in the table. The values are copied out of the
+     * arena into a new queue, so changing the queue doesn't
+     * change the table.
+     */
+    public Queue<Object> search(Object key) {
+        byte[] bytes = keyBytes(key);
+        int i = find(bytes, hash(bytes));
+        if (i == -1) {
+            return null;
+        }
+        return readValues(getSlot(i) & ADDRESS_MASK);
+    }
+
+    /*
+     * remove - remove from the table the entry for the specified key
+     * and return the associated collection of values, or null if the key
+     * is not in the table
+     */
+    public Queue<Object> remove(Object key) {
+        byte[] bytes = keyBytes(key);
+        int i = find(bytes, hash(bytes));
+        if (i == -1) {
+            return null;
+        }
+
+        long record = getSlot(i) & ADDRESS_MASK;
+        Queue<Object> removed = readValues(record);
+        garbageBytes += recordBytes(record);
+        setSlot(i, REMOVED);
+        numRemoved++;
+        numKeys--;
+
+        if (garbageBytes > usedBytes / 2 && usedBytes > FIRST_CHUNK_SIZE) {
+            compact();
+        }
+        return removed;
+    }
+
+    /*
+     * compact - copies the records of the keys that are still in the
+     * table (with their values next to them) into a new arena, and
+     * rebuilds the slots. The old arena's buffers are freed by the
+     * garbage collector once nothing refers to them.
+     */
+    private void compact() {
+        OffHeapHashTable fresh = new OffHeapHashTable(Math.max(numKeys, 1));
+        for (int i = 0; i < numSlots; i++) {
+            long s = getSlot(i);
+            if (s == EMPTY || s == REMOVED) {
+                continue;
+            }
+
+            long record = s & ADDRESS_MASK;
+            ByteBuffer c = chunk(record);
+            byte[] bytes = new byte[c.getInt(pos(record) + KEY_LENGTH)];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = c.get(pos(record) + KEY + j);
+            }
+            Queue<Object> values = readValues(record);
+            while (!values.isEmpty()) {
+                fresh.insert(bytes, values.remove());
+            }
+        }
+
+        slots = fresh.slots;
+        numSlots = fresh.numSlots;
+        numRemoved = 0;
+        chunks = fresh.chunks;
+        top = fresh.top;
+        usedBytes = fresh.usedBytes;
+        garbageBytes = 0;
+    }
+
+    /*
+     * getNumKeys - returns the number of keys in the table
+     */
+    public int getNumKeys() {
+        return numKeys;
+    }
+
+    /*
+     * getOffHeapBytes - returns the number of bytes of direct memory
+     * used by the slots and the arena
+     */
+    public long getOffHeapBytes() {
+        long total = slots.capacity();
+        for (ByteBuffer c : chunks) {
+            total += c.capacity();
+        }
+        return total;
+    }
+
+    public static void main(String[] args) {
+        OffHeapHashTable table = new OffHeapHashTable(4);
+        table.insert("howdy", 15);
+        table.insert("goodbye", 10);
+        table.insert("apple", 5);
+        table.insert("howdy", "twenty-five");
+        table.insert("caf\u00e9", null);
+        System.out.println(table.search("howdy"));    // {15, twenty-five}
+        System.out.println(table.search("caf\u00e9"));     // {null}
+        System.out.println(table.search("pear"));     // null
+        System.out.println(table.remove("apple"));    // {5}
+        System.out.println(table.search("apple"));    // null
+        System.out.println(table.getNumKeys());       // 3
+
+        // a String key and its UTF-8 bytes are the same key
+        byte[] goodbye = "goodbye".getBytes(StandardCharsets.UTF_8);
+        System.out.println(table.search(goodbye));    // {10}
+
+        OffHeapHashTable big = new OffHeapHashTable(16);
+        for (int i = 0; i < 300000; i++) {
+            big.insert("key" + i, i);
+        }
+        long before = big.getOffHeapBytes();
+        for (int i = 0; i < 300000; i++) {
+            if (i % 10 != 0) {
+                big.remove("key" + i);
+            }
+        }
+        boolean allCorrect = true;
+        for (int i = 0; i < 300000; i++) {
+            Queue<Object> vals = big.search("key" + i);
+            if (i % 10 == 0) {
+                allCorrect = allCorrect && vals != null && vals.peek().equals(i);
+            } else {
+                allCorrect = allCorrect && vals == null;
+            }
+        }
+        System.out.println(allCorrect);               // true
+        System.out.println(big.getNumKeys());         // 30000
+        System.out.println(big.getOffHeapBytes() < before);    // true: compacted
+    }
+}
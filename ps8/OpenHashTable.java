@@ -4,42 +4,119 @@
  * Computer Science 112, Boston University
  */
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
+
 /*
  * A class that implements a hash table that employs open addressing
- * using either linear probing, quadratic probing, or double hashing.
+ * using either linear probing, quadratic probing, double hashing,
+ * or Robin Hood hashing.
  */
 public class OpenHashTable implements HashTable {
-    /* Private inner class for an entry in the hash table */
-    private class Entry {
+    /* 
+     * Private inner class for an entry in the hash table. An entry is
+     * also the queue of all of the values with its key, which saves
+     * allocating a separate queue for each key, and the (key, values)
+     * pair returned by the entry iterators.
+     */
+    private static class Entry extends CompactQueue
+                               implements Map.Entry<Object, Queue<Object>> {
         private Object key;
-        private LLQueue<Object> values;    // all of the values with this key
         
         private Entry(Object key, Object value) {
+            super(value);
             this.key = key;
-            values = new LLQueue<Object>();
-            values.insert(value);
+        }
+        
+        // an entry with no key and no values
+        private Entry() {
+        }
+        
+        public Object getKey() {
+            return key;
+        }
+        
+        public Queue<Object> getValue() {
+            return this;
+        }
+        
+        public Queue<Object> setValue(Queue<Object> values) {
+            throw new UnsupportedOperationException();
         }
     }
     
+    /*
+     * Private inner class for an entry in a ROBIN_HOOD table, which
+     * also needs to know how far the entry is from its home slot. The
+     * other probe types use plain entries, which don't pay for it.
+     */
+    private static class RobinHoodEntry extends Entry {
+        private int dist;    // distance from the home slot
+        
+        private RobinHoodEntry(Object key, Object value) {
+            super(key, value);
+        }
+    }
+    
+    // the entry that takes the place of a removed entry; its queue is
+    // empty, so code that looks at its values finds none
+    private static final Entry REMOVED = new Entry();
+    
     // possible types of probing
     public static final int LINEAR = 0;
     public static final int QUADRATIC = 1;
     public static final int DOUBLE_HASHING = 2;
-    public static final int NUM_PROBE_TYPES = 3;
+    public static final int ROBIN_HOOD = 3;
+    public static final int NUM_PROBE_TYPES = 4;
     
     private Entry[] table;             // the hash table itself
     private int probeType = LINEAR;    // the type of probing
+    private HashFunction hashFunction; // used by h1() and h2()
+    private int numKeys;               // the number of keys in the table
+    private int numRemoved;            // the number of removed (key == null) entries
+    private int numCompactions;        // rehashes into a table of the same size
+    private int numGrowths;            // rehashes into a larger table
     
-    public OpenHashTable(int size, int probeType) {
+    private HashTableStats stats;      // null unless enableStats() was called
+    private int lastProbes;            // cells examined by the last search
+    
+    // fraction of the cells without keys that can hold removed entries
+    // before we rehash. Measuring against the cells without keys (rather
+    // than the whole table) means that removed entries can't take over
+    // all of the empty cells of a table whose load is high.
+    private static final double MAX_REMOVED_FRACTION = 0.25;
+    
+    // number of keys whose first slots are touched together by searchAll()
+    private static final int BATCH_SIZE = 32;
+    
+    /*
+     * Constructor for a hash table that uses the specified type of
+     * probing and hash function. The table may be larger than the
+     * specified size if the hash function needs it to be.
+     */
+    public OpenHashTable(int size, int probeType, HashFunction hashFunction) {
         if (size <= 0) {
             throw new IllegalArgumentException("size must be positive");
         }
         if (probeType < 0 || probeType >= NUM_PROBE_TYPES) {
             throw new IllegalArgumentException("invalid probeType: " + probeType);
         }
+        if (hashFunction == null) {
+            throw new IllegalArgumentException("hashFunction must be non-null");
+        }
         
-        table = new Entry[size];
+        table = new Entry[hashFunction.tableSize(size)];
         this.probeType = probeType;
+        this.hashFunction = hashFunction;
+    }
+    
+    public OpenHashTable(int size, int probeType) {
+        this(size, probeType, HashFunction.MODULO);
     }
     
     /*
@@ -52,21 +129,12 @@ public class OpenHashTable implements HashTable {
     
     /* first hash function */
     public int h1(Object key) {
-        int h1 = key.hashCode() % table.length;
-        if (h1 < 0) {
-            h1 += table.length;
-        }
-        return h1;
+        return hashFunction.h1(key, table.length);
     }
     
     /* second hash function */
     public int h2(Object key) {
-        int h2 = key.hashCode() % 5;
-        if (h2 < 0) {
-            h2 += 11;
-        }
-        h2 += 5;
-        return h2;
+        return hashFunction.h2(key, table.length);
     }
     
     /* 
@@ -103,6 +171,7 @@ public class OpenHashTable implements HashTable {
         // keep probing until we get an empty position or a match
         while (table[i] != null && !key.equals(table[i].key)) {
             if (numChecked == table.length) {
+                lastProbes = numChecked;
                 return -1;
             }
             
@@ -110,6 +179,7 @@ public class OpenHashTable implements HashTable {
             numChecked++;
         }
         
+        lastProbes = numChecked;
         return i;
     }
     
@@ -121,6 +191,9 @@ public class OpenHashTable implements HashTable {
         if (key == null) {
             throw new IllegalArgumentException("key must be non-null");
         }
+        if (probeType == ROBIN_HOOD) {
+            return robinHoodInsert(key, value);
+        }
         
         int i = h1(key); 
         int h2 = h2(key);
@@ -142,11 +215,14 @@ public class OpenHashTable implements HashTable {
         }
         
         if (table[i] != null && key.equals(table[i].key)) {
-            table[i].values.insert(value);
+            table[i].insert(value);
         } else if (firstRemoved != -1) {
             table[firstRemoved] = new Entry(key, value);
+            numKeys++;
+            numRemoved--;
         } else if (table[i] == null) {
             table[i] = new Entry(key, value);
+            numKeys++;
         } else {
             return false;
         }
@@ -154,6 +230,100 @@ public class OpenHashTable implements HashTable {
         return true;
     }
     
+    /*
+     * robinHoodFind - returns the index of the entry for the specified
+     * key, or -1 if the key is not in the table.
+     *
+     * Robin Hood hashing uses linear probing, and keeps every run of
+     * entries ordered so that no entry is further from its home slot
+     * than the entry after it would be in its place. As a result,
+     * a search can stop as soon as it has probed further than the
+     * resident of the current slot.
+     */
+    private int robinHoodFind(Object key) {
+        int i = h1(key);
+        int dist = 0;
+        
+        while (table[i] != null && dist <= dist(i)) {
+            if (key.equals(table[i].key)) {
+                lastProbes = dist + 1;
+                return i;
+            }
+            if (dist == table.length - 1) {
+                break;
+            }
+            i = (i + 1) % table.length;
+            dist++;
+        }
+        
+        lastProbes = dist + 1;
+        return -1;
+    }
+    
+    /* dist - the distance of the entry in slot i from its home slot */
+    private int dist(int i) {
+        return ((RobinHoodEntry)table[i]).dist;
+    }
+    
+    /*
+     * robinHoodInsert - the ROBIN_HOOD version of insert. If the key is
+     * new, it walks its probe sequence and takes the slot of the first
+     * entry that is closer to home than the new entry would be. The
+     * displaced entry then continues down the sequence in the same way.
+     */
+    private boolean robinHoodInsert(Object key, Object value) {
+        int i = robinHoodFind(key);
+        if (i != -1) {
+            table[i].insert(value);
+            return true;
+        }
+        if (numKeys == table.length) {
+            return false;
+        }
+        
+        RobinHoodEntry toPlace = new RobinHoodEntry(key, value);
+        i = h1(key);
+        while (table[i] != null) {
+            if (dist(i) < toPlace.dist) {
+                RobinHoodEntry displaced = (RobinHoodEntry)table[i];
+                table[i] = toPlace;
+                toPlace = displaced;
+            }
+            i = (i + 1) % table.length;
+            toPlace.dist++;
+        }
+        table[i] = toPlace;
+        numKeys++;
+        
+        return true;
+    }
+    
+    /*
+     * robinHoodRemove - the ROBIN_HOOD version of remove. Rather than
+     * leaving a removed entry behind, it shifts the following entries
+     * in the run back by one slot, until it reaches an empty slot or
+     * an entry that is already in its home slot.
+     */
+    private Queue<Object> robinHoodRemove(Object key) {
+        int i = robinHoodFind(key);
+        if (i == -1) {
+            return null;
+        }
+        
+        Queue<Object> removedVals = table[i];
+        int next = (i + 1) % table.length;
+        while (table[next] != null && dist(next) > 0) {
+            table[i] = table[next];
+            ((RobinHoodEntry)table[i]).dist--;
+            i = next;
+            next = (next + 1) % table.length;
+        }
+        table[i] = null;
+        numKeys--;
+        
+        return removedVals;
+    }
+    
     /*
      * search - search for the specified key and return the
      * associated collection of values, or null if the key 
@@ -164,15 +334,79 @@ public class OpenHashTable implements HashTable {
             throw new IllegalArgumentException("key must be non-null");
         }
         
-        int i = probe(key);
+        int i;
+        if (probeType == ROBIN_HOOD) {
+            i = robinHoodFind(key);
+        } else {
+            i = probe(key);
+        }
         
-        if (i == -1 || table[i] == null) {
+        boolean found = (i != -1 && table[i] != null);
+        if (stats != null && stats.sample()) {
+            stats.recordSearch(found, lastProbes);
+        }
+        
+        if (!found) {
             return null;
         } else {
-            return table[i].values;
+            return table[i];
         }
     }
     
+    /*
+     * searchAll - searches for each of the specified keys, putting the
+     * result of search(keys[i]) in results[i], and returns the array of
+     * results (a new one if results is null or too short).
+     *
+     * The keys are handled in batches of BATCH_SIZE. First, h1() is
+     * computed for every key in the batch, and the key in each of those
+     * slots is loaded. Java has no prefetch instruction, but these
+     * loads don't depend on each other, so the processor can wait for
+     * many cache misses at once rather than one at a time. Then each
+     * key is compared with the key in its first slot, and only a key
+     * that isn't there needs the rest of its probe sequence.
+     */
+    public Queue<Object>[] searchAll(Object[] keys, Queue<Object>[] results) {
+        if (stats != null) {
+            // let search() record statistics
+            return HashTable.super.searchAll(keys, results);
+        }
+        if (keys == null) {
+            throw new IllegalArgumentException("keys must be non-null");
+        }
+        if (results == null || results.length < keys.length) {
+            results = HashTable.newResults(keys.length);
+        }
+        
+        int[] slots = new int[BATCH_SIZE];
+        Object[] firstKeys = new Object[BATCH_SIZE];
+        for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, keys.length);
+            for (int k = start; k < end; k++) {
+                if (keys[k] == null) {
+                    throw new IllegalArgumentException("key must be non-null");
+                }
+                slots[k - start] = h1(keys[k]);
+            }
+            for (int j = 0; j < end - start; j++) {
+                Entry e = table[slots[j]];
+                firstKeys[j] = (e == null) ? null : e.key;
+            }
+            
+            for (int k = start; k < end; k++) {
+                Entry e = table[slots[k - start]];
+                if (e == null) {
+                    results[k] = null;    // an empty first slot ends every probe
+                } else if (keys[k].equals(firstKeys[k - start])) {
+                    results[k] = e;
+                } else {
+                    results[k] = search(keys[k]);
+                }
+            }
+        }
+        return results;
+    }
+    
     /* 
      * remove - remove from the table the entry for the specified key
      * and return the associated collection of values, or null if the key 
@@ -182,15 +416,331 @@ public class OpenHashTable implements HashTable {
         if (key == null) {
             throw new IllegalArgumentException("key must be non-null");
         }
+        if (probeType == ROBIN_HOOD) {
+            return robinHoodRemove(key);
+        }
             
         int i = probe(key);
         if (i == -1 || table[i] == null) {
             return null;
         }
         
-        LLQueue<Object> removedVals = table[i].values;
-        table[i].key = null;
-        table[i].values = null;
+        Queue<Object> removedVals = table[i];
+        table[i] = REMOVED;
+        numKeys--;
+        numRemoved++;
+        
+        if (numRemoved > MAX_REMOVED_FRACTION * (table.length - numKeys)) {
+            if (numKeys > table.length / 2) {
+                rehash(hashFunction.growSize(table.length));
+                numGrowths++;
+            } else {
+                rehash(table.length);
+                numCompactions++;
+            }
+        }
         return removedVals;
     }
-}
\ No newline at end of file
+    
+    /*
+     * rehash - moves the entries for all of the keys into a fresh table
+     * of the specified size, discarding the removed entries. If the
+     * probe sequence of some key doesn't reach an empty cell of the new
+     * table (which can happen with quadratic probing or double hashing),
+     * we try again with a larger table.
+     */
+    private void rehash(int newSize) {
+        long start = (stats != null) ? System.nanoTime() : 0;
+        Entry[] oldTable = table;
+        
+        boolean placedAll = false;
+        while (!placedAll) {
+            table = new Entry[newSize];
+            placedAll = true;
+            for (int j = 0; j < oldTable.length && placedAll; j++) {
+                if (oldTable[j] != null && oldTable[j].key != null) {
+                    int i = probe(oldTable[j].key);
+                    if (i == -1) {
+                        placedAll = false;
+                    } else {
+                        table[i] = oldTable[j];
+                    }
+                }
+            }
+            newSize = hashFunction.growSize(newSize);
+        }
+        
+        numRemoved = 0;
+        if (stats != null) {
+            stats.recordResize(System.nanoTime() - start);
+        }
+    }
+    
+    /*
+     * getNumKeys - returns the number of keys in the table
+     */
+    public int getNumKeys() {
+        return numKeys;
+    }
+    
+    /*
+     * getNumRemoved - returns the number of removed entries that
+     * are still occupying cells of the table
+     */
+    public int getNumRemoved() {
+        return numRemoved;
+    }
+    
+    /*
+     * getNumCompactions - returns the number of times that the table
+     * has been rehashed in place to get rid of removed entries
+     */
+    public int getNumCompactions() {
+        return numCompactions;
+    }
+    
+    /*
+     * getNumGrowths - returns the number of times that the table has
+     * been rehashed into a larger table to get rid of removed entries
+     */
+    public int getNumGrowths() {
+        return numGrowths;
+    }
+    
+    /*
+     * enableStats - starts collecting statistics about this table,
+     * recording one out of every sampleInterval searches
+     */
+    public void enableStats(int sampleInterval) {
+        stats = new HashTableStats(sampleInterval);
+    }
+    
+    /*
+     * disableStats - stops collecting statistics about this table
+     */
+    public void disableStats() {
+        stats = null;
+    }
+    
+    /*
+     * getStats - returns the statistics collected since enableStats()
+     * was called, or null if they aren't being collected
+     */
+    public HashTableStats getStats() {
+        if (stats != null) {
+            stats.setTableState(numKeys, numRemoved, table.length);
+        }
+        return stats;
+    }
+    
+    /*
+     * entryIterator - returns an iterator over the (key, values) pairs
+     * in the table. The pairs are the table's own entries, so iterating
+     * allocates nothing beyond the iterator itself. The table should
+     * not be modified while the iterator is in use.
+     */
+    public Iterator<Map.Entry<Object, Queue<Object>>> entryIterator() {
+        return new EntryIterator(table, 0, table.length);
+    }
+    
+    /*
+     * keyIterator - returns an iterator over the keys in the table.
+     * The table should not be modified while the iterator is in use.
+     */
+    public Iterator<Object> keyIterator() {
+        return new KeyIterator();
+    }
+    
+    /*
+     * spliterator - returns a Spliterator over the (key, values) pairs
+     * in the table, which splits by ranges of cells. It can be used
+     * to process the table with a parallel stream:
+     *
+     *     StreamSupport.stream(table.spliterator(), true)
+     *
+     * The table should not be modified while the stream is in use.
+     */
+    public Spliterator<Map.Entry<Object, Queue<Object>>> spliterator() {
+        return new EntryIterator(table, 0, table.length);
+    }
+    
+    /*
+     * inner class for an iterator over the entries in the cells
+     * start to end - 1 of the specified table. It is also a
+     * Spliterator, which splits off the second half of its
+     * remaining cells.
+     */
+    private class EntryIterator
+            implements Iterator<Map.Entry<Object, Queue<Object>>>,
+                       Spliterator<Map.Entry<Object, Queue<Object>>> {
+        private Entry[] cells;
+        private int index;    // the cell that next() will return, or end
+        private int end;      // the cell at which to stop
+        
+        private EntryIterator(Entry[] cells, int start, int end) {
+            this.cells = cells;
+            this.index = start;
+            this.end = end;
+            skipEmpty();
+        }
+        
+        /*
+         * skipEmpty - advances index past any empty or removed cells
+         */
+        private void skipEmpty() {
+            while (index < end && (cells[index] == null || cells[index].key == null)) {
+                index++;
+            }
+        }
+        
+        public boolean hasNext() {
+            return (index < end);
+        }
+        
+        public Map.Entry<Object, Queue<Object>> next() {
+            if (index >= end) {
+                throw new NoSuchElementException();
+            }
+            Entry e = cells[index];
+            index++;
+            skipEmpty();
+            return e;
+        }
+        
+        public boolean tryAdvance(Consumer<? super Map.Entry<Object, Queue<Object>>> action) {
+            if (index >= end) {
+                return false;
+            }
+            action.accept(next());
+            return true;
+        }
+        
+        public void forEachRemaining(Consumer<? super Map.Entry<Object, Queue<Object>>> action) {
+            while (index < end) {
+                action.accept(next());
+            }
+        }
+        
+        public Spliterator<Map.Entry<Object, Queue<Object>>> trySplit() {
+            int mid = (index + end) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            EntryIterator secondHalf = new EntryIterator(cells, mid, end);
+            end = mid;
+            return secondHalf;
+        }
+        
+        public long estimateSize() {
+            return (long)numKeys * (end - index) / cells.length;
+        }
+        
+        public int characteristics() {
+            return DISTINCT | NONNULL;
+        }
+    }
+    
+    /*
+     * inner class for an iterator over the keys in the table
+     */
+    private class KeyIterator implements Iterator<Object> {
+        private Iterator<Map.Entry<Object, Queue<Object>>> entries = entryIterator();
+        
+        public boolean hasNext() {
+            return entries.hasNext();
+        }
+        
+        public Object next() {
+            return entries.next().getKey();
+        }
+    }
+    
+    public static void main(String[] args) {
+        OpenHashTable table = new OpenHashTable(7, ROBIN_HOOD);
+        table.insert(0, "zero");
+        table.insert(7, "seven");       // home slot 0, ends up in slot 1
+        table.insert(1, "one");         // home slot 1, displaced to slot 2
+        table.insert(14, "fourteen");   // home slot 0, takes slot 2
+        table.insert(7, "sept");
+        System.out.println(table.search(7));     // {seven, sept}
+        System.out.println(table.search(1));     // {one}
+        System.out.println(table.search(21));    // null
+        System.out.println(table.remove(0));     // {zero}
+        System.out.println(table.search(14));    // {fourteen}
+        System.out.println(table.search(1));     // {one}
+        System.out.println(table.remove(7));     // {seven, sept}
+        System.out.println(table.search(1));     // {one}
+        
+        for (int i = 100; i < 105; i++) {
+            table.insert(i, i);
+        }
+        System.out.println(table.insert(200, 200));    // false (full)
+        System.out.println(table.search(104));         // {104}
+        
+        // insert/remove churn that would otherwise fill the table
+        // with removed entries
+        OpenHashTable churn = new OpenHashTable(11, LINEAR);
+        for (int i = 0; i < 1000; i++) {
+            churn.insert(i, i);
+            if (i >= 3) {
+                churn.remove(i - 3);
+            }
+        }
+        System.out.println(churn.getNumKeys());            // 3
+        System.out.println(churn.search(998));             // {998}
+        System.out.println(churn.search(5));               // null
+        System.out.println(churn.getNumRemoved() <= 2);    // true
+        System.out.println(churn.getNumCompactions() > 0); // true
+        System.out.println(churn.getNumGrowths());         // 0
+        
+        // churn at a load of 0.75, where removed entries would otherwise
+        // fill every empty cell and make each miss scan the whole table
+        OpenHashTable busy = new OpenHashTable(1000, LINEAR, HashFunction.MIXING);
+        for (int i = 0; i < 768; i++) {
+            busy.insert(i, i);
+        }
+        for (int i = 768; i < 20768; i++) {
+            busy.insert(i, i);
+            busy.remove(i - 768);
+        }
+        busy.enableStats(1);
+        for (int i = 0; i < 1000; i++) {
+            busy.search(-1 - i);    // all misses
+        }
+        System.out.println(busy.getNumKeys());                        // 768
+        System.out.println(busy.getStats().getAvgMissProbes() < 20);  // true
+        
+        OpenHashTable measured = new OpenHashTable(11, QUADRATIC);
+        measured.enableStats(1);
+        for (int i = 0; i < 6; i++) {
+            measured.insert(11 * i, i);    // all in the same home slot
+        }
+        measured.search(0);     // hit after 1 probe
+        measured.search(55);    // hit after 6 probes
+        measured.search(66);    // miss
+        System.out.println(measured.getStats());
+        
+        Iterator<Object> keys = measured.keyIterator();
+        while (keys.hasNext()) {
+            System.out.print(keys.next() + " ");    // in cell order
+        }
+        System.out.println();
+        
+        OpenHashTable big = new OpenHashTable(200003, DOUBLE_HASHING);
+        for (int i = 1; i <= 100000; i++) {
+            big.insert(i, i);
+        }
+        big.remove(50);
+        long sum = StreamSupport.stream(big.spliterator(), true)
+            .mapToLong(e -> (Integer)e.getKey())
+            .sum();
+        System.out.println(sum);    // 5000050000 - 50
+        
+        Object[] batch = { 7, 50, 99999, 200000, 3 };
+        Queue<Object>[] results = big.searchAll(batch, null);
+        System.out.println(Arrays.toString(results));  // [{7}, null, {99999}, null, {3}]
+        Object[] batch2 = { 1, 2 };
+        System.out.println(big.searchAll(batch2, results) == results);    // true: reused
+        System.out.println(results[0] + " " + results[1]);               // {1} {2}
+    }
+}
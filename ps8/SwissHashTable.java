@@ -0,0 +1,308 @@
+/*
+ * SwissHashTable.java
+ *
+ * Computer Science 112, Boston University
+ */
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/*
+ * A class that implements a hash table using open addressing in the
+ * style of "Swiss tables".
+ *
+ * Besides the array of entries, the table keeps a byte[] of control
+ * bytes, one per slot. A control byte is EMPTY, DELETED, or (for a
+ * slot in use) 7 bits of the key's hash code, called its fingerprint.
+ * The slots are probed in groups of GROUP_SIZE = 8, and the 8 control
+ * bytes of a group are read as a single long. With a few arithmetic
+ * tricks on that long, we can find all of the slots in the group
+ * whose fingerprint matches the key's, and whether the group has any
+ * empty slots, without looking at the slots one by one. key.equals()
+ * is only called for slots whose fingerprints match, so a search
+ * usually touches one or two cache lines of control bytes and calls
+ * equals() just once.
+ *
+ * The groups are probed using quadratic probing on group indices,
+ * which visits every group because the number of groups is a power
+ * of two. The table grows when it is 7/8 full (counting deleted
+ * slots), so a search always reaches a group with an empty slot.
+ */
+public class SwissHashTable implements HashTable {
+    /*
+     * Private inner class for an entry. As in OpenHashTable, an entry
+     * is also the queue of its key's values.
+     */
+    private static class Entry extends CompactQueue {
+        private Object key;
+
+        private Entry(Object key, Object value) {
+            super(value);
+            this.key = key;
+        }
+    }
+
+    public static final int GROUP_SIZE = 8;
+
+    // control bytes for slots that aren't in use; fingerprints are 0..127
+    private static final byte EMPTY = (byte)0x80;
+    private static final byte DELETED = (byte)0xFE;
+
+    // constants for the tricks on groups of control bytes
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    // reads 8 bytes of a byte[] as one long, with byte j of the group
+    // in bits 8j..8j+7
+    private static final VarHandle LONG_VIEW =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private byte[] ctrl;        // the control bytes
+    private Entry[] slots;
+    private int numGroups;      // a power of two
+    private int numKeys;
+    private int numDeleted;
+
+    /*
+     * Constructor for a table with room for (at least) the specified
+     * number of keys
+     */
+    public SwissHashTable(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        int groups = 1;
+        while ((long)groups * GROUP_SIZE * 7 / 8 < size && groups < (1 << 26)) {
+            groups *= 2;
+        }
+        allocate(groups);
+    }
+
+    private void allocate(int groups) {
+        numGroups = groups;
+        ctrl = new byte[groups * GROUP_SIZE];
+        java.util.Arrays.fill(ctrl, EMPTY);
+        slots = new Entry[groups * GROUP_SIZE];
+        numKeys = 0;
+        numDeleted = 0;
+    }
+
+    /* hash - the mixed hash code of the key */
+    private static int hash(Object key) {
+        return MixingHashFunction.mix(key.hashCode());
+    }
+
+    /* fingerprint - the 7 bits of the hash that go in a control byte */
+    private static byte fingerprint(int hash) {
+        return (byte)(hash & 0x7F);
+    }
+
+    /* firstGroup - the first group in the hash's probe sequence */
+    private int firstGroup(int hash) {
+        return (hash >>> 7) & (numGroups - 1);
+    }
+
+    /*
+     * group - reads the control bytes of group g as a long, in a single
+     * 8-byte load
+     */
+    private long group(int g) {
+        return (long)LONG_VIEW.get(ctrl, g * GROUP_SIZE);
+    }
+
+    /*
+     * matchByte - returns a long with the high bit of byte j set if
+     * byte j of word equals b. (It can also set the high bit of a byte
+     * just after a true match, so callers must check each candidate,
+     * which they do anyway by comparing keys.)
+     */
+    private static long matchByte(long word, byte b) {
+        long x = word ^ (LOW_BITS * (b & 0xFF));
+        return (x - LOW_BITS) & ~x & HIGH_BITS;
+    }
+
+    /*
+     * matchEmpty - returns a long with the high bit of byte j set if
+     * byte j of word is EMPTY (0x80 is the only control byte whose
+     * top two bits are 1 and 0)
+     */
+    private static long matchEmpty(long word) {
+        return word & ~(word << 1) & HIGH_BITS;
+    }
+
+    /*
+     * find - returns the index of the slot containing the specified key,
+     * or -1 if the key is not in the table
+     */
+    private int find(Object key, int hash) {
+        byte fp = fingerprint(hash);
+        int g = firstGroup(hash);
+        for (int step = 1; step <= numGroups; step++) {
+            long word = group(g);
+            for (long m = matchByte(word, fp); m != 0; m &= m - 1) {
+                int i = g * GROUP_SIZE + (Long.numberOfTrailingZeros(m) >>> 3);
+                if (ctrl[i] == fp && key.equals(slots[i].key)) {
+                    return i;
+                }
+            }
+            if (matchEmpty(word) != 0) {
+                return -1;
+            }
+            g = (g + step) & (numGroups - 1);
+        }
+        return -1;
+    }
+
+    /*
+     * insert - insert the specified (key, value) pair in the hash table.
+     * Returns true if the pair can be added and false if there is overflow.
+     * Will never have overflow, because the table grows as needed.
+     */
+    public boolean insert(Object key, Object value) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+
+        int hash = hash(key);
+        int i = find(key, hash);
+        if (i != -1) {
+            slots[i].insert(value);
+            return true;
+        }
+
+        if (numKeys + numDeleted + 1 > (long)slots.length * 7 / 8) {
+            // grow if the table is mostly keys; otherwise, just clear
+            // out the deleted slots
+            rehash(numKeys + 1 > (long)slots.length * 7 / 16 ? 2 * numGroups : numGroups);
+        }
+        place(new Entry(key, value), hash);
+        numKeys++;
+        return true;
+    }
+
+    /*
+     * place - puts the specified new entry in the first empty or
+     * deleted slot in its probe sequence
+     */
+    private void place(Entry e, int hash) {
+        int g = firstGroup(hash);
+        for (int step = 1; ; step++) {
+            // EMPTY and DELETED are the only control bytes with the high bit set
+            long free = group(g) & HIGH_BITS;
+            if (free != 0) {
+                int i = g * GROUP_SIZE + (Long.numberOfTrailingZeros(free) >>> 3);
+                if (ctrl[i] == DELETED) {
+                    numDeleted--;
+                }
+                ctrl[i] = fingerprint(hash);
+                slots[i] = e;
+                return;
+            }
+            g = (g + step) & (numGroups - 1);
+        }
+    }
+
+    /*
+     * rehash - moves all of the entries into fresh arrays with the
+     * specified number of groups
+     */
+    private void rehash(int groups) {
+        Entry[] oldSlots = slots;
+        byte[] oldCtrl = ctrl;
+        int oldNumKeys = numKeys;
+
+        allocate(groups);
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldCtrl[i] >= 0) {
+                place(oldSlots[i], hash(oldSlots[i].key));
+            }
+        }
+        numKeys = oldNumKeys;
+    }
+
+    /*
+     * search - search for the specified key and return the
+     * associated collection of values, or null if the key
+     * is not in the table
+     */
+    public Queue<Object> search(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+
+        int i = find(key, hash(key));
+        if (i == -1) {
+            return null;
+        }
+        return slots[i];
+    }
+
+    /*
+     * remove - remove from the table the entry for the specified key
+     * and return the associated collection of values, or null if the key
+     * is not in the table
+     */
+    public Queue<Object> remove(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must be non-null");
+        }
+
+        int i = find(key, hash(key));
+        if (i == -1) {
+            return null;
+        }
+
+        Entry removed = slots[i];
+        slots[i] = null;
+        // if the group still has an empty slot, no probe sequence
+        // continues past it, so the slot can be made empty again
+        if (matchEmpty(group(i / GROUP_SIZE)) != 0) {
+            ctrl[i] = EMPTY;
+        } else {
+            ctrl[i] = DELETED;
+            numDeleted++;
+        }
+        numKeys--;
+        return removed;
+    }
+
+    /*
+     * getNumKeys - returns the number of keys in the table
+     */
+    public int getNumKeys() {
+        return numKeys;
+    }
+
+    public static void main(String[] args) {
+        SwissHashTable table = new SwissHashTable(4);
+        table.insert("howdy", 15);
+        table.insert("goodbye", 10);
+        table.insert("apple", 5);
+        table.insert("howdy", 25);
+        System.out.println(table.search("howdy"));    // {15, 25}
+        System.out.println(table.search("pear"));     // null
+        System.out.println(table.remove("apple"));    // {5}
+        System.out.println(table.search("apple"));    // null
+        System.out.println(table.getNumKeys());       // 2
+
+        SwissHashTable big = new SwissHashTable(16);
+        for (int i = 0; i < 200000; i++) {
+            big.insert("key" + i, i);
+        }
+        for (int i = 0; i < 200000; i += 2) {
+            big.remove("key" + i);
+        }
+        boolean allCorrect = true;
+        for (int i = 0; i < 200000; i++) {
+            Queue<Object> vals = big.search("key" + i);
+            if (i % 2 == 0) {
+                allCorrect = allCorrect && vals == null;
+            } else {
+                allCorrect = allCorrect && vals != null && vals.peek().equals(i);
+            }
+        }
+        System.out.println(allCorrect);               // true
+        System.out.println(big.getNumKeys());         // 100000
+    }
+}
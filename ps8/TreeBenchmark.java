@@ -0,0 +1,138 @@
+/*
+ * TreeBenchmark.java
+ *
+ * Computer Science 112, Boston University
+ *
+ * Simple timing harness for the tree classes in this directory.
+ * Run it with the number of keys as an optional argument:
+ *
+ *     java -Xmx4g TreeBenchmark 1000000
+ */
+
+public class TreeBenchmark {
+    /*
+     * benchSortedInsert - inserts the keys 0, 1, ..., n-1 in order into
+     * a balanced LinkedTree, and (for at most maxUnbalanced keys, because
+     * each insert takes time proportional to the number of keys already
+     * there) into an unbalanced one, and then searches for every key
+     */
+    public static void benchSortedInsert(int n, int maxUnbalanced) {
+        for (int round = 0; round < 2; round++) {    // the first round is warm-up
+            for (int b = 0; b < 2; b++) {
+                boolean balanced = (b == 1);
+                int numKeys = balanced ? n : Math.min(n, maxUnbalanced);
+                LinkedTree tree = new LinkedTree(balanced);
+
+                System.gc();
+                long start = System.nanoTime();
+                for (int i = 0; i < numKeys; i++) {
+                    tree.insert(i, null);
+                }
+                double insertNs = (double)(System.nanoTime() - start) / numKeys;
+
+                start = System.nanoTime();
+                for (int i = 0; i < numKeys; i++) {
+                    tree.search(i);
+                }
+                double searchNs = (double)(System.nanoTime() - start) / numKeys;
+
+                if (round == 1) {
+                    System.out.printf("%-10s %,11d sorted keys: height %,9d  insert %9.1f  "
+                        + "search %9.1f ns/op%n", balanced ? "balanced" : "unbalanced",
+                        numKeys, tree.height(), insertNs, searchNs);
+                }
+            }
+        }
+    }
+
+    /*
+     * benchBPlusTree - compares a BPlusTree with balanced and unbalanced
+     * LinkedTrees on n keys inserted in a scrambled order: inserts,
+     * searches, an in-order scan of all of the keys, and deletes
+     */
+    public static void benchBPlusTree(int n) {
+        // a random permutation of 0..n-1
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = i;
+        }
+        java.util.Random rand = new java.util.Random(112);
+        for (int i = n - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int temp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = temp;
+        }
+
+        String[] names = { "LinkedTree", "LinkedTree(true)", "BPlusTree" };
+        for (int t = 0; t < names.length; t++) {
+            LinkedTree tree = null;
+            BPlusTree bTree = null;
+            System.gc();    // so the previous tree's garbage isn't collected during timing
+
+            long start = System.nanoTime();
+            if (t < 2) {
+                tree = new LinkedTree(t == 1);
+                for (int i = 0; i < n; i++) {
+                    tree.insert(keys[i], null);
+                }
+            } else {
+                bTree = new BPlusTree();
+                for (int i = 0; i < n; i++) {
+                    bTree.insert(keys[i], null);
+                }
+            }
+            double insertNs = (double)(System.nanoTime() - start) / n;
+
+            start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < n; i++) {
+                if ((t < 2 ? tree.search(keys[i]) : bTree.search(keys[i])) != null) {
+                    found++;
+                }
+            }
+            double searchNs = (double)(System.nanoTime() - start) / n;
+
+            start = System.nanoTime();
+            LinkedTreeIterator iter = (t < 2) ? tree.inorderIterator()
+                                              : bTree.inorderIterator();
+            long sum = 0;
+            while (iter.hasNext()) {
+                sum += iter.next();
+            }
+            double scanNs = (double)(System.nanoTime() - start) / n;
+
+            start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                if (t < 2) {
+                    tree.delete(keys[i]);
+                } else {
+                    bTree.delete(keys[i]);
+                }
+            }
+            double deleteNs = (double)(System.nanoTime() - start) / n;
+
+            System.out.printf("%-17s %,11d keys: insert %7.1f  search %7.1f  "
+                + "scan %6.1f  delete %7.1f ns/key%s%n", names[t], n, insertNs,
+                searchNs, scanNs, deleteNs,
+                (found == n && sum == (long)n * (n - 1) / 2) ? "" : "  WRONG");
+        }
+    }
+
+    public static void main(String[] args) {
+        int n = 1000000;
+        if (args.length > 0) {
+            n = Integer.parseInt(args[0]);
+        }
+
+        System.out.println("== sorted insertion ==");
+        benchSortedInsert(n, 20000);
+
+        // B+ tree vs. binary trees at n keys and 10n keys (use a large
+        // -Xmx for 100 million keys)
+        System.out.println("== B+ tree ==");
+        benchBPlusTree(n / 10);    // warm-up
+        benchBPlusTree(n);
+        benchBPlusTree(10 * n);
+    }
+}